@@ -0,0 +1,95 @@
+package com.wallet;
+
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.dto.mapper.TransactionResponseMapper;
+import com.wallet.dto.mapper.TransactionResponseMapperImpl;
+import com.wallet.model.Role;
+import com.wallet.model.RoleType;
+import com.wallet.model.Status;
+import com.wallet.model.Transaction;
+import com.wallet.model.Type;
+import com.wallet.model.User;
+import com.wallet.model.Wallet;
+import com.wallet.repository.RoleRepository;
+import com.wallet.repository.TypeRepository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the entity graphs used by the benchmarks
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Creates the mapper with a reference data registry loaded from the fixture type and roles
+     */
+    public static TransactionResponseMapper transactionResponseMapper() {
+        final TypeRepository typeRepository = Mockito.mock(TypeRepository.class);
+        final RoleRepository roleRepository = Mockito.mock(RoleRepository.class);
+        Mockito.when(typeRepository.findAll()).thenReturn(List.of(type()));
+        Mockito.when(roleRepository.findAll()).thenReturn(List.copyOf(user(1).getRoles()));
+        final ReferenceDataRegistry registry = new ReferenceDataRegistry(typeRepository, roleRepository);
+        registry.refresh();
+
+        final TransactionResponseMapper mapper = new TransactionResponseMapperImpl();
+        ReflectionTestUtils.setField(mapper, "referenceDataRegistry", registry);
+        return mapper;
+    }
+
+    public static Type type() {
+        final Type type = new Type();
+        type.setId(1L);
+        type.setName("Transfer");
+        type.setDescription("Transfer between wallets");
+        return type;
+    }
+
+    public static User user(long id) {
+        final User user = new User();
+        user.setId(id);
+        user.setFirstName("John");
+        user.setLastName("Doe");
+        user.setUsername("johndoe" + id);
+        user.setEmail("john" + id + "@doe.com");
+        for (RoleType roleType : RoleType.values()) {
+            final Role role = new Role();
+            role.setId((long) roleType.ordinal() + 1);
+            role.setType(roleType);
+            user.getRoles().add(role);
+        }
+        return user;
+    }
+
+    public static Wallet wallet(long id, User user) {
+        final Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setIban("DE89370400440532013000");
+        wallet.setName("Wallet " + id);
+        wallet.setBalance(new BigDecimal("1250.75"));
+        wallet.setUser(user);
+        return wallet;
+    }
+
+    public static Transaction transaction(long id) {
+        final Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(new BigDecimal("42.50"));
+        transaction.setDescription("Benchmark transaction");
+        transaction.setCreatedAt(Instant.parse("2023-03-15T10:15:30Z").plusSeconds(id));
+        transaction.setReferenceNumber(UUID.randomUUID());
+        transaction.setStatus(Status.SUCCESS);
+        transaction.setFromWallet(wallet(id * 2, user(1)));
+        transaction.setToWallet(wallet(id * 2 + 1, user(2)));
+        transaction.setType(type());
+        return transaction;
+    }
+}
@@ -0,0 +1,36 @@
+package com.wallet.dto.mapper;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.wallet.BenchmarkFixtures;
+import com.wallet.dto.response.TransactionResponse;
+import com.wallet.model.Transaction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping of a transaction including the createdAt formatting done in the after mapping method
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionResponseMapperBenchmark {
+
+    private final TransactionResponseMapper mapper = BenchmarkFixtures.transactionResponseMapper();
+    private final Transaction transaction = BenchmarkFixtures.transaction(1);
+    private final TransactionResponse response = new TransactionResponse();
+
+    @Benchmark
+    public TransactionResponse toDto() {
+        return mapper.toDto(transaction);
+    }
+
+    @Benchmark
+    public TransactionResponse formatCreatedAt() {
+        mapper.formatCreatedAt(response, transaction);
+        return response;
+    }
+}
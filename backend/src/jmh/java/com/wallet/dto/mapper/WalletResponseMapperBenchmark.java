@@ -0,0 +1,29 @@
+package com.wallet.dto.mapper;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.wallet.BenchmarkFixtures;
+import com.wallet.dto.response.WalletResponse;
+import com.wallet.model.Wallet;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures mapping of a wallet with its user and the roles of the user
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalletResponseMapperBenchmark {
+
+    private final WalletResponseMapper mapper = new WalletResponseMapperImpl();
+    private final Wallet wallet = BenchmarkFixtures.wallet(1, BenchmarkFixtures.user(1));
+
+    @Benchmark
+    public WalletResponse toDto() {
+        return mapper.toDto(wallet);
+    }
+}
@@ -0,0 +1,52 @@
+package com.wallet.dto.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.wallet.BenchmarkFixtures;
+import com.wallet.dto.mapper.TransactionResponseMapper;
+
+import static com.wallet.common.Constants.SUCCESS;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Measures serialisation of a page of transactions as returned by TransactionController.findAll
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ApiResponse<Page<TransactionResponse>> response;
+
+    @Setup
+    public void setUp() {
+        final TransactionResponseMapper mapper = BenchmarkFixtures.transactionResponseMapper();
+        final List<TransactionResponse> content = LongStream.rangeClosed(1, pageSize)
+                .mapToObj(BenchmarkFixtures::transaction)
+                .map(mapper::toDto)
+                .toList();
+        final Page<TransactionResponse> page = new PageImpl<>(content, PageRequest.of(0, pageSize), 1000);
+        response = new ApiResponse<>(System.currentTimeMillis(), SUCCESS, page);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,75 @@
+package com.wallet.validator;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static com.wallet.common.Constants.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares IbanValidator with the implementation it replaced (substring/concatenation and
+ * Character.getNumericValue per char). Run with -prof gc to compare the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IbanValidatorBenchmark {
+
+    private static final String[] IBANS = {
+            "DE89370400440532013000",
+            "GB82WEST12345698765432",
+            "FR1420041010050500013M02606",
+            "TR330006100519786457841326",
+            "NO9386011117947",
+            "DE88370400440532013000"
+    };
+
+    private final IbanValidator validator = new IbanValidator();
+    private final List<String> batch = List.of(IBANS);
+
+    @Benchmark
+    public void current(Blackhole blackhole) {
+        for (String iban : IBANS) {
+            blackhole.consume(validator.isValid(iban, null));
+        }
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (String iban : IBANS) {
+            blackhole.consume(legacyIsValid(iban));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> validateAll() {
+        return validator.validateAll(batch);
+    }
+
+    private static boolean legacyIsValid(String iban) {
+        String trimmed = iban.trim();
+        if (trimmed.length() < IBAN_MIN_SIZE || trimmed.length() > IBAN_MAX_SIZE) {
+            return false;
+        }
+        String reformat = trimmed.substring(4) + trimmed.substring(0, 4);
+        long total = 0;
+
+        for (int i = 0; i < reformat.length(); i++) {
+            int charValue = Character.getNumericValue(reformat.charAt(i));
+
+            if (charValue < 0 || charValue > 35)
+                return false;
+
+            total = (charValue > 9 ? total * 100 : total * 10) + charValue;
+
+            if (total > IBAN_MAX)
+                total = (total % IBAN_MODULUS);
+        }
+        return (total % IBAN_MODULUS) == 1;
+    }
+}
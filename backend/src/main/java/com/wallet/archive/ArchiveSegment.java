@@ -0,0 +1,410 @@
+package com.wallet.archive;
+
+import com.wallet.common.HistoryCursor;
+import com.wallet.model.Status;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.LongStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable archive file of transactions, read through a memory-mapped buffer. Rows are sorted by
+ * (createdAt, id) and stored in blocks, each block holding its rows column by column and compressed with deflate.
+ * A sparse index keeps the time range and the wallet ids of each block, so that reads only inflate the blocks
+ * that can contain the requested rows. Reference numbers are looked up with a binary search on a sorted index.
+ * <p>
+ * Layout: header | blocks | block index | reference number index (msb, lsb, block)
+ */
+public final class ArchiveSegment {
+
+    private static final int MAGIC = 0x57415243;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * 4 + 8 * 4;
+    private static final int REFERENCE_ENTRY_SIZE = 8 + 8 + 4;
+
+    static final Comparator<ArchivedTransaction> ORDER = Comparator
+            .comparing(ArchivedTransaction::createdAt)
+            .thenComparingLong(ArchivedTransaction::id);
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final Block[] blocks;
+    private final long referenceIndexOffset;
+    private final HistoryCursor lastPosition;
+
+    private record Block(int offset, int length, int rawLength, int rows,
+                         long minCreatedAt, long maxCreatedAt, long[] walletIds) {
+
+        boolean overlaps(long from, long to) {
+            return maxCreatedAt >= from && minCreatedAt <= to;
+        }
+
+        boolean containsAny(long[] sortedWalletIds) {
+            int i = 0;
+            int j = 0;
+            while (i < walletIds.length && j < sortedWalletIds.length) {
+                if (walletIds[i] == sortedWalletIds[j])
+                    return true;
+                if (walletIds[i] < sortedWalletIds[j])
+                    i++;
+                else
+                    j++;
+            }
+            return false;
+        }
+    }
+
+    private ArchiveSegment(Path file, MappedByteBuffer buffer, int rowCount, Block[] blocks,
+                           long referenceIndexOffset, HistoryCursor lastPosition) {
+        this.file = file;
+        this.buffer = buffer;
+        this.rowCount = rowCount;
+        this.blocks = blocks;
+        this.referenceIndexOffset = referenceIndexOffset;
+        this.lastPosition = lastPosition;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Position of the newest row in the segment
+     */
+    public HistoryCursor getLastPosition() {
+        return lastPosition;
+    }
+
+    /**
+     * Writes the given non-empty rows into a new segment file and opens it. The file is written under a
+     * temporary name and moved in place once it is complete.
+     */
+    public static ArchiveSegment write(Path file, List<ArchivedTransaction> rows, int blockSize) throws IOException {
+        final List<ArchivedTransaction> sorted = rows.stream().sorted(ORDER).toList();
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        final ByteArrayOutputStream blockIndex = new ByteArrayOutputStream();
+        final DataOutputStream blockIndexOut = new DataOutputStream(blockIndex);
+        final ByteBuffer referenceIndex = ByteBuffer.allocate(sorted.size() * REFERENCE_ENTRY_SIZE);
+        final List<long[]> references = new ArrayList<>(sorted.size());
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            int blockCount = 0;
+            for (int start = 0; start < sorted.size(); start += blockSize, blockCount++) {
+                final List<ArchivedTransaction> block = sorted.subList(start, Math.min(start + blockSize, sorted.size()));
+                final byte[] raw = encode(block);
+                final byte[] compressed = deflate(raw);
+                final long[] walletIds = block.stream()
+                        .flatMapToLong(row -> LongStream.of(row.fromWalletId(), row.toWalletId()))
+                        .distinct().sorted().toArray();
+
+                blockIndexOut.writeLong(channel.position());
+                blockIndexOut.writeInt(compressed.length);
+                blockIndexOut.writeInt(raw.length);
+                blockIndexOut.writeInt(block.size());
+                blockIndexOut.writeLong(toMicros(block.get(0).createdAt()));
+                blockIndexOut.writeLong(toMicros(block.get(block.size() - 1).createdAt()));
+                blockIndexOut.writeInt(walletIds.length);
+                for (long walletId : walletIds)
+                    blockIndexOut.writeLong(walletId);
+                for (ArchivedTransaction row : block)
+                    references.add(new long[]{row.referenceNumber().getMostSignificantBits(),
+                            row.referenceNumber().getLeastSignificantBits(), blockCount});
+                writeFully(channel, ByteBuffer.wrap(compressed));
+            }
+
+            references.sort(Comparator.<long[]>comparingLong(reference -> reference[0])
+                    .thenComparingLong(reference -> reference[1]));
+            for (long[] reference : references)
+                referenceIndex.putLong(reference[0]).putLong(reference[1]).putInt((int) reference[2]);
+
+            final long blockIndexOffset = channel.position();
+            writeFully(channel, ByteBuffer.wrap(blockIndex.toByteArray()));
+            final long referenceIndexOffset = channel.position();
+            writeFully(channel, referenceIndex.flip());
+
+            final ArchivedTransaction last = sorted.get(sorted.size() - 1);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(blockCount)
+                    .putLong(blockIndexOffset).putLong(referenceIndexOffset)
+                    .putLong(toMicros(last.createdAt())).putLong(last.id())
+                    .flip();
+            channel.position(0);
+            writeFully(channel, header);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    private int compareReference(int index, long msb, long lsb) {
+        final int entry = (int) referenceIndexOffset + index * REFERENCE_ENTRY_SIZE;
+        final int comparison = Long.compare(buffer.getLong(entry), msb);
+        return comparison != 0 ? comparison : Long.compare(buffer.getLong(entry + 8), lsb);
+    }
+
+    /**
+     * Maps the given segment file and reads its block index
+     */
+    public static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Archive segment is too large: " + file);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Not an archive segment: " + file);
+
+            final int rowCount = buffer.getInt(8);
+            final Block[] blocks = new Block[buffer.getInt(12)];
+            int position = (int) buffer.getLong(16);
+            for (int i = 0; i < blocks.length; i++) {
+                final int offset = (int) buffer.getLong(position);
+                final int length = buffer.getInt(position + 8);
+                final int rawLength = buffer.getInt(position + 12);
+                final int rows = buffer.getInt(position + 16);
+                final long minCreatedAt = buffer.getLong(position + 20);
+                final long maxCreatedAt = buffer.getLong(position + 28);
+                final long[] walletIds = new long[buffer.getInt(position + 36)];
+                position += 40;
+                for (int j = 0; j < walletIds.length; j++, position += 8)
+                    walletIds[j] = buffer.getLong(position);
+                blocks[i] = new Block(offset, length, rawLength, rows, minCreatedAt, maxCreatedAt, walletIds);
+            }
+            final HistoryCursor lastPosition = new HistoryCursor(fromMicros(buffer.getLong(32)), buffer.getLong(40));
+            return new ArchiveSegment(file, buffer, rowCount, blocks, buffer.getLong(24), lastPosition);
+        }
+    }
+
+    /**
+     * Fetches the newest row with the given reference number. Reference numbers are not unique in the database
+     * (see V8 migration), so the index may hold the same reference number for several rows.
+     */
+    public Optional<ArchivedTransaction> findByReferenceNumber(UUID referenceNumber) {
+        final long msb = referenceNumber.getMostSignificantBits();
+        final long lsb = referenceNumber.getLeastSignificantBits();
+        // first entry not below the reference number
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (compareReference(middle, msb, lsb) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        ArchivedTransaction newest = null;
+        int decodedBlock = -1;
+        for (int index = low; index < rowCount && compareReference(index, msb, lsb) == 0; index++) {
+            final int block = buffer.getInt((int) referenceIndexOffset + index * REFERENCE_ENTRY_SIZE + 16);
+            // equal entries keep the block order they were written in, so a block is decoded once
+            if (block == decodedBlock)
+                continue;
+            decodedBlock = block;
+            for (ArchivedTransaction row : decode(blocks[block])) {
+                if (row.referenceNumber().equals(referenceNumber) && (newest == null || ORDER.compare(row, newest) > 0))
+                    newest = row;
+            }
+        }
+        return Optional.ofNullable(newest);
+    }
+
+    /**
+     * Fetches up to limit rows of the given wallets that are not older than from and older than the given
+     * position, newest first
+     */
+    public List<ArchivedTransaction> findByWalletIds(long[] sortedWalletIds, Instant from, HistoryCursor before, int limit) {
+        final long fromMicros = toMicros(from);
+        final long beforeMicros = toMicros(before.createdAt());
+        final List<ArchivedTransaction> result = new ArrayList<>();
+        for (int i = blocks.length - 1; i >= 0 && result.size() < limit; i--) {
+            final Block block = blocks[i];
+            if (!block.overlaps(fromMicros, beforeMicros) || !block.containsAny(sortedWalletIds))
+                continue;
+            final ArchivedTransaction[] rows = decode(block);
+            for (int j = rows.length - 1; j >= 0 && result.size() < limit; j--) {
+                final ArchivedTransaction row = rows[j];
+                final long createdAt = toMicros(row.createdAt());
+                if (createdAt >= fromMicros
+                        && (createdAt < beforeMicros || createdAt == beforeMicros && row.id() < before.id())
+                        && (Arrays.binarySearch(sortedWalletIds, row.fromWalletId()) >= 0
+                        || Arrays.binarySearch(sortedWalletIds, row.toWalletId()) >= 0))
+                    result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads all rows of the segment, oldest first
+     */
+    public List<ArchivedTransaction> findAll() {
+        final List<ArchivedTransaction> result = new ArrayList<>(rowCount);
+        for (Block block : blocks)
+            result.addAll(Arrays.asList(decode(block)));
+        return result;
+    }
+
+    private ArchivedTransaction[] decode(Block block) {
+        final byte[] raw = inflate(buffer.slice(block.offset(), block.length()), block.rawLength());
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            final int rows = block.rows();
+            final long[] ids = readDeltas(in, rows);
+            final long[] createdAts = readDeltas(in, rows);
+            final BigDecimal[] amounts = new BigDecimal[rows];
+            for (int i = 0; i < rows; i++)
+                amounts[i] = new BigDecimal(in.readUTF());
+            final String[] descriptions = new String[rows];
+            for (int i = 0; i < rows; i++)
+                descriptions[i] = in.readBoolean() ? in.readUTF() : null;
+            final UUID[] references = new UUID[rows];
+            for (int i = 0; i < rows; i++)
+                references[i] = new UUID(in.readLong(), in.readLong());
+            final Status[] statuses = new Status[rows];
+            for (int i = 0; i < rows; i++)
+                statuses[i] = Status.valueOf(in.readUTF());
+            final long[] fromWalletIds = readLongs(in, rows);
+            final long[] toWalletIds = readLongs(in, rows);
+            final long[] typeIds = readLongs(in, rows);
+
+            final ArchivedTransaction[] result = new ArchivedTransaction[rows];
+            for (int i = 0; i < rows; i++)
+                result[i] = new ArchivedTransaction(ids[i], amounts[i], descriptions[i], fromMicros(createdAts[i]),
+                        references[i], statuses[i], fromWalletIds[i], toWalletIds[i], typeIds[i]);
+            return result;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Archive segment is corrupted: " + file, ex);
+        }
+    }
+
+    private static byte[] encode(List<ArchivedTransaction> rows) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        // ids and timestamps are ascending, so their deltas are small and compress well
+        writeDeltas(out, rows.stream().mapToLong(ArchivedTransaction::id).toArray());
+        writeDeltas(out, rows.stream().mapToLong(row -> toMicros(row.createdAt())).toArray());
+        for (ArchivedTransaction row : rows)
+            out.writeUTF(row.amount().toPlainString());
+        for (ArchivedTransaction row : rows) {
+            out.writeBoolean(row.description() != null);
+            if (row.description() != null)
+                out.writeUTF(row.description());
+        }
+        for (ArchivedTransaction row : rows) {
+            out.writeLong(row.referenceNumber().getMostSignificantBits());
+            out.writeLong(row.referenceNumber().getLeastSignificantBits());
+        }
+        for (ArchivedTransaction row : rows)
+            out.writeUTF(row.status().name());
+        for (ArchivedTransaction row : rows)
+            out.writeLong(row.fromWalletId());
+        for (ArchivedTransaction row : rows)
+            out.writeLong(row.toWalletId());
+        for (ArchivedTransaction row : rows)
+            out.writeLong(row.typeId());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeDeltas(DataOutputStream out, long[] values) throws IOException {
+        long previous = 0;
+        for (long value : values) {
+            out.writeLong(value - previous);
+            previous = value;
+        }
+    }
+
+    private static long[] readDeltas(DataInputStream in, int count) throws IOException {
+        final long[] values = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += in.readLong();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static long[] readLongs(DataInputStream in, int count) throws IOException {
+        final long[] values = new long[count];
+        for (int i = 0; i < count; i++)
+            values[i] = in.readLong();
+        return values;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4);
+            final byte[] chunk = new byte[8192];
+            while (!deflater.finished())
+                out.write(chunk, 0, deflater.deflate(chunk));
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(ByteBuffer compressed, int rawLength) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            final byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength) {
+                final int read = inflater.inflate(raw, length, rawLength - length);
+                if (read == 0 && (inflater.finished() || inflater.needsInput()))
+                    throw new DataFormatException("Unexpected end of block");
+                length += read;
+            }
+            return raw;
+        } catch (DataFormatException ex) {
+            throw new UncheckedIOException("Archive segment is corrupted: " + file, new IOException(ex));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    static Instant fromMicros(long micros) {
+        return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
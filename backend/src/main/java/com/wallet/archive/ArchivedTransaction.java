@@ -0,0 +1,21 @@
+package com.wallet.archive;
+
+import com.wallet.model.Status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Transaction row moved out of the database into an archive segment. Wallets and type are kept as ids.
+ */
+public record ArchivedTransaction(long id,
+                                  BigDecimal amount,
+                                  String description,
+                                  Instant createdAt,
+                                  UUID referenceNumber,
+                                  Status status,
+                                  long fromWalletId,
+                                  long toWalletId,
+                                  long typeId) {
+}
@@ -0,0 +1,143 @@
+package com.wallet.archive;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.wallet.common.HistoryCursor;
+
+import static com.wallet.common.Constants.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Cold storage of the transactions moved out of the database by TransactionArchiver. Each archival run appends
+ * new segment files to the archive directory; segments are never modified afterwards. Transactions may be
+ * inserted with a createdAt older than the rows archived before them, so the (createdAt, id) ranges of the
+ * segments may overlap, and the reads merge the rows of all segments. Segments are kept in the order they are
+ * written, newest first.
+ */
+@Slf4j(topic = "TransactionArchive")
+@Component
+public class TransactionArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final boolean enabled;
+    private final int blockSize;
+
+    // newest segment first
+    private volatile List<ArchiveSegment> segments = List.of();
+
+    public TransactionArchive(@Value("${app.archive.directory:./archive}") String directory,
+                              @Value("${app.archive.enabled:false}") boolean enabled,
+                              @Value("${app.archive.blockSize:4096}") int blockSize) {
+        this.directory = Path.of(directory);
+        this.enabled = enabled;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Loads the segments of the archive directory. The directory is only created when archiving is enabled; the
+     * segments archived before disabling it are still read.
+     */
+    @PostConstruct
+    public synchronized void load() throws IOException {
+        if (!enabled && !Files.isDirectory(directory))
+            return;
+        Files.createDirectories(directory);
+        final List<ArchiveSegment> loaded = new ArrayList<>();
+        final Map<ArchiveSegment, FileTime> writtenAt = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().endsWith(SEGMENT_SUFFIX)) {
+                    final ArchiveSegment segment = ArchiveSegment.open(file);
+                    loaded.add(segment);
+                    writtenAt.put(segment, Files.getLastModifiedTime(file));
+                } else if (file.getFileName().toString().endsWith(SEGMENT_SUFFIX + ".tmp"))
+                    Files.delete(file); // left over by an interrupted archival run
+            }
+        }
+        // segments written within a run cover ascending positions, so the position breaks the ties of a run
+        loaded.sort(Comparator.comparing((ArchiveSegment segment) -> writtenAt.get(segment))
+                .thenComparing(ArchiveSegment::getLastPosition, HistoryCursor.ORDER)
+                .reversed());
+        segments = List.copyOf(loaded);
+        log.info(LOADED_ARCHIVE_SEGMENTS, segments.size(), segments.stream().mapToLong(ArchiveSegment::getRowCount).sum());
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /**
+     * Returns the segment written last, which may still have rows in the database if an archival run is
+     * interrupted
+     */
+    public Optional<ArchiveSegment> findNewestSegment() {
+        final List<ArchiveSegment> current = segments;
+        return current.isEmpty() ? Optional.empty() : Optional.of(current.get(0));
+    }
+
+    /**
+     * Returns the position of the newest archived row
+     */
+    public Optional<HistoryCursor> findNewestPosition() {
+        return segments.stream().map(ArchiveSegment::getLastPosition).max(HistoryCursor.ORDER);
+    }
+
+    /**
+     * Writes the given rows into a new segment
+     */
+    public synchronized ArchiveSegment append(List<ArchivedTransaction> rows) throws IOException {
+        Files.createDirectories(directory);
+        final ArchivedTransaction last = rows.stream().max(ArchiveSegment.ORDER).orElseThrow();
+        final Path file = directory.resolve(String.format("transactions-%019d-%019d%s",
+                ArchiveSegment.toMicros(last.createdAt()), last.id(), SEGMENT_SUFFIX));
+        final ArchiveSegment segment = ArchiveSegment.write(file, rows, blockSize);
+
+        final List<ArchiveSegment> updated = new ArrayList<>(segments.size() + 1);
+        updated.add(segment);
+        updated.addAll(segments);
+        segments = List.copyOf(updated);
+        return segment;
+    }
+
+    /**
+     * Fetches the newest archived transaction with the given reference number
+     */
+    public Optional<ArchivedTransaction> findByReferenceNumber(UUID referenceNumber) {
+        return segments.stream()
+                .map(segment -> segment.findByReferenceNumber(referenceNumber))
+                .flatMap(Optional::stream)
+                .max(ArchiveSegment.ORDER);
+    }
+
+    /**
+     * Fetches up to limit archived transactions of the given wallets that are not older than from and older than
+     * the given position, newest first
+     */
+    public List<ArchivedTransaction> findByWalletIds(Collection<Long> walletIds, Instant from, HistoryCursor before, int limit) {
+        final long[] sortedWalletIds = walletIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        final List<ArchivedTransaction> result = new ArrayList<>();
+        for (ArchiveSegment segment : segments)
+            result.addAll(segment.findByWalletIds(sortedWalletIds, from, before, limit));
+        result.sort(ArchiveSegment.ORDER.reversed());
+        return result.size() > limit ? List.copyOf(result.subList(0, limit)) : result;
+    }
+}
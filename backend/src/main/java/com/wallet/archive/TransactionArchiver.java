@@ -0,0 +1,144 @@
+package com.wallet.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.model.Status;
+
+import static com.wallet.common.Constants.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves the transactions older than the configured age from the database into the TransactionArchive. Each
+ * segment is written and its rows are deleted in the same database transaction, so a failed run either leaves
+ * the rows in the database or, when it fails after the segment is written, leaves rows that are deleted at the
+ * beginning of the next run, before any row is selected. Rows are selected by their age alone, not after the
+ * last archived position, so the rows inserted with an older createdAt after a run are archived by the next one,
+ * while the archived rows are excluded by being deleted. Reads that do not find a transaction in the database
+ * fall back to the archive.
+ */
+@Slf4j(topic = "TransactionArchiver")
+@Service
+public class TransactionArchiver {
+
+    // serializes the archival runs of the instances sharing the database
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(hashtext('transaction_archive'))";
+
+    private static final String SELECT = "SELECT id, amount, description, created_at, reference_number, status, " +
+            "from_wallet_id, to_wallet_id, type_id FROM transaction " +
+            "WHERE created_at < ? " +
+            "ORDER BY created_at, id LIMIT ?";
+
+    private static final String DELETE = "DELETE FROM transaction " +
+            "WHERE id = ANY (?) AND created_at >= ? AND created_at <= ?";
+
+    private static final RowMapper<ArchivedTransaction> ROW_MAPPER = (rs, rowNum) -> new ArchivedTransaction(
+            rs.getLong("id"),
+            rs.getBigDecimal("amount"),
+            rs.getString("description"),
+            rs.getObject("created_at", LocalDateTime.class).toInstant(ZoneOffset.UTC),
+            rs.getObject("reference_number", UUID.class),
+            Status.valueOf(rs.getString("status")),
+            rs.getLong("from_wallet_id"),
+            rs.getLong("to_wallet_id"),
+            rs.getLong("type_id"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchive transactionArchive;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration age;
+    private final int segmentSize;
+
+    public TransactionArchiver(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               TransactionArchive transactionArchive,
+                               Clock clock,
+                               @Value("${app.archive.enabled:false}") boolean enabled,
+                               @Value("${app.archive.age:365d}") Duration age,
+                               @Value("${app.archive.segmentSize:100000}") int segmentSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionArchive = transactionArchive;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.age = age;
+        this.segmentSize = segmentSize;
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 2 * * *}", zone = "UTC")
+    public void scheduledArchive() {
+        if (enabled)
+            archive();
+    }
+
+    /**
+     * Archives the transactions older than the configured age and returns the number of archived rows
+     */
+    public synchronized int archive() {
+        final Instant cutoff = Instant.now(clock).minus(age);
+        transactionArchive.findNewestSegment().ifPresent(segment -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(LOCK);
+            final int deleted = delete(segment.findAll());
+            if (deleted > 0)
+                log.warn(DELETED_ARCHIVED_TRANSACTIONS, deleted, segment.getFile());
+        }));
+
+        int archived = 0;
+        int count;
+        do {
+            count = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute(LOCK);
+                final List<ArchivedTransaction> rows = jdbcTemplate.query(SELECT, ROW_MAPPER,
+                        toTimestamp(cutoff), segmentSize);
+                if (rows.isEmpty())
+                    return 0;
+                try {
+                    final ArchiveSegment segment = transactionArchive.append(rows);
+                    delete(rows);
+                    log.info(ARCHIVED_TRANSACTIONS, rows.size(), segment.getFile());
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return rows.size();
+            });
+            archived += count;
+        } while (count == segmentSize);
+        return archived;
+    }
+
+    private int delete(List<ArchivedTransaction> rows) {
+        final Long[] ids = rows.stream().map(ArchivedTransaction::id).toArray(Long[]::new);
+        final Instant from = rows.stream().map(ArchivedTransaction::createdAt).min(Instant::compareTo).orElseThrow();
+        final Instant to = rows.stream().map(ArchivedTransaction::createdAt).max(Instant::compareTo).orElseThrow();
+        return jdbcTemplate.update(connection -> {
+            final var statement = connection.prepareStatement(DELETE);
+            final Array array = connection.createArrayOf("bigint", ids);
+            statement.setArray(1, array);
+            statement.setTimestamp(2, toTimestamp(from));
+            statement.setTimestamp(3, toTimestamp(to));
+            return statement;
+        });
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
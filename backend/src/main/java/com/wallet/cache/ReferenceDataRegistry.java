@@ -0,0 +1,108 @@
+package com.wallet.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import com.wallet.dto.response.TypeResponse;
+import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.model.Role;
+import com.wallet.model.RoleType;
+import com.wallet.model.Type;
+import com.wallet.repository.RoleRepository;
+import com.wallet.repository.TypeRepository;
+
+import static com.wallet.common.Constants.*;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of the transaction types and roles, loaded at startup and replaced as a whole on refresh.
+ * Lookups do not access the database; entities are handed out as references (proxies) by id.
+ */
+@Slf4j(topic = "ReferenceDataRegistry")
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+
+    private final TypeRepository typeRepository;
+    private final RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot;
+
+    private record Snapshot(Map<Long, TypeResponse> types, Map<RoleType, Long> roleIds) {
+    }
+
+    /**
+     * Reloads the types and roles from the database
+     */
+    @PostConstruct
+    public void refresh() {
+        final Map<Long, TypeResponse> types = typeRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Type::getId,
+                        type -> typeResponse(type.getId(), type.getName(), type.getDescription())));
+        final Map<RoleType, Long> roleIds = new EnumMap<>(RoleType.class);
+        roleRepository.findAll().forEach(role -> roleIds.put(role.getType(), role.getId()));
+        snapshot = new Snapshot(types, roleIds);
+        log.info(LOADED_REFERENCE_DATA, types.size(), roleIds.size());
+    }
+
+    public boolean hasType(long id) {
+        return snapshot.types().containsKey(id);
+    }
+
+    /**
+     * Fetches a single type reference (entity) by the given id
+     */
+    public Type getTypeReference(long id) {
+        if (!hasType(id))
+            throw new NoSuchElementFoundException(NOT_FOUND_TYPE);
+        return typeRepository.getReferenceById(id);
+    }
+
+    /**
+     * Maps the given type using the snapshot, so that the type does not need to be loaded
+     */
+    public TypeResponse toTypeResponse(Type type) {
+        return type != null ? toTypeResponse(type.getId()) : null;
+    }
+
+    /**
+     * Maps the type with the given id using the snapshot
+     */
+    public TypeResponse toTypeResponse(long id) {
+        final TypeResponse response = snapshot.types().get(id);
+        if (response == null)
+            throw new NoSuchElementFoundException(NOT_FOUND_TYPE);
+        // responses are mutable, so the instances of the snapshot are not handed out
+        return typeResponse(response.getId(), response.getName(), response.getDescription());
+    }
+
+    /**
+     * Fetches role references (entities) by the given role types
+     */
+    public List<Role> getRoleReferences(Collection<RoleType> types) {
+        final Map<RoleType, Long> roleIds = snapshot.roleIds();
+        return types.stream()
+                .map(type -> {
+                    final Long id = roleIds.get(type);
+                    if (id == null)
+                        throw new NoSuchElementFoundException(NOT_FOUND_ROLE);
+                    return roleRepository.getReferenceById(id);
+                })
+                .toList();
+    }
+
+    private static TypeResponse typeResponse(Long id, String name, String description) {
+        final TypeResponse response = new TypeResponse();
+        response.setId(id);
+        response.setName(name);
+        response.setDescription(description);
+        return response;
+    }
+}
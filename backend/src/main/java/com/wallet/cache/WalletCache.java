@@ -0,0 +1,85 @@
+package com.wallet.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.repository.WalletRepository;
+import com.wallet.routing.ReplicaRoutingDataSource;
+
+import static com.wallet.common.Constants.NOT_FOUND_WALLET;
+
+import java.time.Duration;
+
+/**
+ * Bounded cache of wallet metadata by iban. Entries are invalidated when the transaction changing the wallet
+ * completes, so the next lookup after an update or delete reads the committed row. Invalidating a key waits
+ * for a load of the same key in progress, so a load that read the row before the change cannot be cached
+ * after it. Loads read the primary, since a row read from a lagging replica would be served until it expires.
+ * Hit and miss statistics are exposed as cache.* meters with the name "wallets".
+ */
+@Component
+public class WalletCache {
+
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate primaryRead;
+    private final Cache<String, WalletRef> wallets;
+
+    public WalletCache(WalletRepository walletRepository,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.walletCache.maxSize:100000}") long maxSize,
+                       @Value("${app.walletCache.ttl:10m}") Duration ttl) {
+        this.walletRepository = walletRepository;
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.primaryRead.setReadOnly(true);
+        this.wallets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, wallets, "wallets");
+    }
+
+    /**
+     * Fetches the metadata of the wallet with the given iban
+     */
+    public WalletRef get(String iban) {
+        final WalletRef wallet = wallets.get(iban, this::load);
+        if (wallet == null)
+            throw new NoSuchElementFoundException(NOT_FOUND_WALLET);
+        return wallet;
+    }
+
+    /**
+     * Reads the wallet from the primary. A read-only transaction may be bound to a replica connection, so the
+     * wallet is read in a transaction of its own then; other transactions already use the primary, and may have
+     * written the wallet themselves.
+     */
+    private WalletRef load(String iban) {
+        return ReplicaRoutingDataSource.readFromPrimary(() -> {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+                return walletRepository.findRefByIban(iban).orElse(null);
+            return primaryRead.execute(status -> walletRepository.findRefByIban(iban).orElse(null));
+        });
+    }
+
+    /**
+     * Invalidates the changed wallets after the transaction is committed or rolled back
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onWalletChanged(WalletChangedEvent event) {
+        wallets.invalidateAll(event.ibans());
+    }
+}
@@ -0,0 +1,9 @@
+package com.wallet.cache;
+
+import java.util.List;
+
+/**
+ * Published when wallets are created, updated or deleted, with the ibans whose cache entries become stale
+ */
+public record WalletChangedEvent(List<String> ibans) {
+}
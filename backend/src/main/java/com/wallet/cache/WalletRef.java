@@ -0,0 +1,7 @@
+package com.wallet.cache;
+
+/**
+ * Wallet metadata kept in the {@link WalletCache}. Balances are never cached.
+ */
+public record WalletRef(long id, String name, long userId) {
+}
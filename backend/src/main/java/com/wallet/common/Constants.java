@@ -15,8 +15,13 @@ public final class Constants {
     public static final int IBAN_MAX_SIZE = 34;
     public static final long IBAN_MAX = 999999999;
     public static final long IBAN_MODULUS = 97;
+    public static final int HISTORY_PAGE_SIZE = 20;
+    public static final int HISTORY_MAX_PAGE_SIZE = 100;
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     public static final String SUCCESS = "Success";
+    public static final String NOT_SETTLED_BATCH = "Batch is not settled in full. Check 'results' field for details";
     public static final String UNAUTHORIZED = "Unauthorized";
     public static final String UNAUTHORIZED_ERROR = "Unauthorized error: {}";
     public static final String CANNOT_SET_AUTH = "Cannot set user authentication: {}";
@@ -30,6 +35,9 @@ public final class Constants {
     public static final String UNKNOWN_ERROR = "Unknown error occurred";
     public static final String METHOD_ARGUMENT_NOT_VALID = "MethodArgumentNotValid exception";
     public static final String FIELD_NOT_VALIDATED = "Field is not validated";
+    public static final String INVALID_ARGUMENT = "Invalid argument";
+    public static final String INVALID_CURSOR = "Cursor is not valid";
+    public static final String INVALID_EXPORT_FORMAT = "Export format is not supported";
 
     public static final String LOGGED_IN_USER = "User logged in (username: {})";
     public static final String ALREADY_EXISTS = "Requested element already exists";
@@ -41,12 +49,49 @@ public final class Constants {
     public static final String NOT_FOUND_RECORD = "Not found any record";
     public static final String NOT_FOUND_WALLET = "Requested wallet is not found";
     public static final String NOT_FOUND_TRANSACTION = "Requested transaction is not found";
+    public static final String NOT_FOUND_TYPE = "Requested type is not found";
+    public static final String NOT_FOUND_ROLE = "Requested role is not found";
+    public static final String LOADED_REFERENCE_DATA = "Reference data is loaded (types: {} --- roles: {})";
     public static final String CREATED_USER = "User is created (username: {})";
     public static final String CREATED_WALLET = "Wallet is created (iban: {} --- name: {} --- balance: {})";
     public static final String CREATED_TRANSACTION = "Transaction is created (from: {} --- to: {} --- amount: {})";
     public static final String UPDATED_WALLET = "Wallet is updated (iban: {} --- name: {} --- balance: {})";
     public static final String DELETED_WALLET = "Wallet is deleted (iban: {} --- name: {} --- balance: {})";
     public static final String FUNDS_CANNOT_BELOW_ZERO = "Transfer amount should be higher than or equal to wallet balance";
+    public static final String CREATED_TRANSACTION_PARTITION = "Transaction partition is created (name: {})";
+    public static final String NOT_CREATED_TRANSACTION_PARTITION = "Transaction partition cannot be created (name: {} --- reason: {})";
+    public static final String DETACHED_TRANSACTION_PARTITION = "Transaction partition is detached (name: {})";
+    public static final String LOADED_ARCHIVE_SEGMENTS = "Transaction archive is loaded (segments: {} --- transactions: {})";
+    public static final String ARCHIVED_TRANSACTIONS = "Transactions are archived (count: {} --- segment: {})";
+    public static final String DELETED_ARCHIVED_TRANSACTIONS = "Already archived transactions are deleted (count: {} --- segment: {})";
+    public static final String TOOK_BALANCE_SNAPSHOTS = "Balance snapshots are taken (wallets: {} --- snapshots: {})";
+    public static final String STARTED_RECONCILIATION = "Reconciliation is started (run: {} --- from wallet id: {} --- to wallet id: {})";
+    public static final String SKIPPED_RECONCILIATION = "Reconciliation is not started since a run is executed by another instance";
+    public static final String FAILED_RECONCILIATION = "Reconciliation is failed (run: {} --- reason: {})";
+    public static final String RECONCILED_BALANCES = "Reconciliation is finished (run: {} --- wallets: {} --- wallets per second: {})";
+    public static final String CAUGHT_UP_STATS = "Statistics are recounted (months: {} --- {} --- duration: {} ms)";
+    public static final String NOT_STREAMED_WALLET_ACTIVITY = "Wallet activity cannot be streamed: {}";
+    public static final String DROPPED_BLOCKED_STREAM_SUBSCRIBER = "Wallet stream is closed since a send to the subscriber is blocked (user: {} --- send timeout: {})";
+    public static final String DROPPED_STREAM_SUBSCRIBER = "Wallet stream is closed since the subscriber is too slow (user: {} --- buffer size: {})";
+    public static final String EXPORTED_TRANSACTIONS = "Transactions are exported (count: {} --- format: {})";
     public static final String UPDATED_WALLET_BALANCE = "Wallet balance is updated (New Wallet Balance: {})";
     public static final String UPDATED_WALLET_BALANCES = "Wallet balances are updated (Wallet of sender: {} --- Wallet of receiver: {})";
+    public static final String HOT_WALLET_LEDGER_STARTED = "Hot wallet ledger is started (flagged wallets: {} --- batch size: {})";
+    public static final String HOT_WALLET_NOT_FOUND = "Flagged hot wallet is not found (iban: {})";
+    public static final String HOT_WALLET_ADMITTED = "Wallet is served by the hot wallet ledger (id: {} --- balance: {})";
+    public static final String HOT_WALLET_RELEASED = "Wallet is released from the hot wallet ledger (id: {})";
+    public static final String HOT_WALLET_FLUSH_FAILED = "Hot wallet ledger flush is failed, resident wallets are dropped";
+    public static final String HOT_WALLET_NOT_ACKNOWLEDGED = "Wallet operation is not executed since it could not be acknowledged in time";
+    public static final String HOT_WALLET_AMOUNT_SCALE = "Amount has more decimal places than supported for this wallet";
+    public static final String IDEMPOTENCY_KEY_REUSED = "Idempotency key is already used for a different request";
+    public static final String REPLAYED_IDEMPOTENT_REQUEST = "Idempotent request is replayed (operation: {} --- id: {})";
+    public static final String DELETED_IDEMPOTENCY_KEYS = "Expired idempotency keys are deleted (count: {})";
+    public static final String SETTLED_TRANSFER_BATCH = "Transfer batch is settled (settled: {} --- rejected: {})";
+    public static final String NOT_SETTLED_ATOMIC_BATCH = "Transfer is not settled since another transfer in the atomic batch is rejected";
+    public static final String REPLICA_NOT_AVAILABLE = "Replica is not available, its reads are routed to the other data sources (replica: {} --- reason: {})";
+    public static final String SEQUENCE_INCREMENT_MISMATCH = "Increment of sequence {0} ({1}) does not match its block size ({2})";
+    public static final String PINNED_VIRTUAL_THREAD = "Virtual thread is pinned to its carrier (duration ms: {} --- frame: {})";
+    public static final String REBUILT_UNIQUENESS_FILTER = "Uniqueness filter is rebuilt (key: {} --- keys: {} --- duration ms: {})";
+    public static final String NOT_REBUILT_UNIQUENESS_FILTER = "Uniqueness filter cannot be rebuilt, the previous one is kept (key: {} --- reason: {})";
+    public static final String RETRYING_WALLET_OPERATION = "Wallet operation failed on attempt {} of {}, retrying: {}";
 }
@@ -0,0 +1,53 @@
+package com.wallet.common;
+
+import static com.wallet.common.Constants.INVALID_CURSOR;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Position in a transaction history ordered by (createdAt, id) descending. It is passed to the clients as an
+ * opaque token and points to the last row of the previous page.
+ */
+public record HistoryCursor(Instant createdAt, long id) {
+
+    /**
+     * Cursor pointing before the newest row, used for fetching the first page
+     */
+    public static final HistoryCursor FIRST = new HistoryCursor(Instant.parse("9999-12-31T23:59:59Z"), Long.MAX_VALUE);
+
+    /**
+     * Ascending order of the positions, oldest first
+     */
+    public static final Comparator<HistoryCursor> ORDER = Comparator.comparing(HistoryCursor::createdAt)
+            .thenComparingLong(HistoryCursor::id);
+
+    /**
+     * Encodes the cursor as a URL safe token
+     */
+    public String encode() {
+        final long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((micros + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes the given token, or returns the cursor of the first page when there is no token
+     */
+    public static HistoryCursor decode(String token) {
+        if (token == null || token.isBlank())
+            return FIRST;
+        try {
+            final String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            final int separator = value.indexOf(':');
+            final long micros = Long.parseLong(value.substring(0, separator));
+            final long id = Long.parseLong(value.substring(separator + 1));
+            return new HistoryCursor(Instant.EPOCH.plus(micros, ChronoUnit.MICROS), id);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(INVALID_CURSOR, ex);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.wallet.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.wallet.idgen.PooledLoSequenceGenerator;
+import com.wallet.idgen.RandomUuidGenerator;
+import com.wallet.idgen.ReferenceNumberGenerator;
+import com.wallet.idgen.ReferenceNumberType;
+import com.wallet.idgen.UuidV7Generator;
+
+import static com.wallet.common.Constants.SEQUENCE_INCREMENT_MISMATCH;
+
+import java.text.MessageFormat;
+import java.time.Clock;
+import java.util.Map;
+
+/**
+ * Configuration file used for the generation of the transaction reference numbers and the entity ids. The block
+ * sizes of the pooled-lo sequences are passed to Hibernate and checked against the increments of the database
+ * sequences at startup, since a block larger than the increment would hand out the same ids twice.
+ */
+@Configuration
+public class IdGenerationConfig {
+
+    @Value("${app.idgen.referenceNumbers:UUID_V7}")
+    private ReferenceNumberType referenceNumbers;
+
+    @Value("${app.idgen.transactionBlockSize:50}")
+    private int transactionBlockSize;
+
+    @Value("${app.idgen.walletBlockSize:20}")
+    private int walletBlockSize;
+
+    @Value("${app.idgen.userBlockSize:20}")
+    private int userBlockSize;
+
+    @Bean
+    public ReferenceNumberGenerator referenceNumberGenerator(Clock clock) {
+        return referenceNumbers == ReferenceNumberType.UUID_V7 ? new UuidV7Generator(clock) : new RandomUuidGenerator();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer blockSizeCustomizer() {
+        return properties -> blockSizes().forEach((sequence, blockSize) ->
+                properties.put(PooledLoSequenceGenerator.BLOCK_SIZE_SETTING + sequence, blockSize));
+    }
+
+    @Bean
+    public SmartInitializingSingleton sequenceIncrementCheck(JdbcTemplate jdbcTemplate) {
+        return () -> blockSizes().forEach((sequence, blockSize) -> {
+            final Long increment = jdbcTemplate.queryForObject(
+                    "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, sequence);
+            if (increment == null || increment != blockSize.longValue())
+                throw new IllegalStateException(
+                        MessageFormat.format(SEQUENCE_INCREMENT_MISMATCH, sequence, increment, blockSize));
+        });
+    }
+
+    /**
+     * Block sizes of the sequences served by the {@link PooledLoSequenceGenerator}, keyed by the sequence names
+     */
+    public Map<String, Integer> blockSizes() {
+        return Map.of("sequence_transaction", transactionBlockSize,
+                "sequence_wallet", walletBlockSize,
+                "sequence_user", userBlockSize);
+    }
+}
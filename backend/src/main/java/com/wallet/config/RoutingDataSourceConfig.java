@@ -0,0 +1,99 @@
+package com.wallet.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.wallet.routing.ReplicaRoutingDataSource;
+import com.wallet.routing.ReplicaSelection;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration file used for routing the read-only transactions to the replica databases. The primary pool is
+ * configured by the spring.datasource properties as before, while the replicas share its credentials and only
+ * differ in their urls. Flyway always migrates the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.routing.enabled", havingValue = "true")
+public class RoutingDataSourceConfig {
+
+    @Value("${app.datasource.routing.replicaUrls:}")
+    private List<String> replicaUrls;
+
+    @Value("${app.datasource.routing.replicaPoolSize:10}")
+    private int replicaPoolSize;
+
+    @Value("${app.datasource.routing.selection:LEAST_LOADED}")
+    private ReplicaSelection selection;
+
+    @Value("${app.datasource.routing.maxLagMs:1000}")
+    private long maxLagMs;
+
+    @Value("${app.datasource.routing.readYourWritesWindow:5s}")
+    private Duration readYourWritesWindow;
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        final HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             MeterRegistry meterRegistry) {
+        final List<ReplicaRoutingDataSource.Replica> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank())
+                continue;
+            final HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            dataSource.setPoolName("replica-" + replicas.size());
+            dataSource.setMaximumPoolSize(replicaPoolSize);
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionInitSql(primaryDataSource.getConnectionInitSql());
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReplicaRoutingDataSource.Replica(dataSource.getPoolName(), dataSource, () -> {
+                final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+                return pool != null ? pool.getActiveConnections() : 0;
+            }));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, selection, maxLagMs,
+                readYourWritesWindow, meterRegistry);
+    }
+
+    /**
+     * Data source used by JPA, JdbcTemplate and the other data access code. The physical connection is fetched
+     * at the first statement, when the read-only flag of the transaction is already set.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        final LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return dataSource;
+    }
+}
@@ -0,0 +1,12 @@
+package com.wallet.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration file used for enabling the scheduled jobs of the application
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,65 @@
+package com.wallet.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.wallet.dto.response.ApiResponse;
+import com.wallet.dto.response.ReconciliationResponse;
+import com.wallet.ledger.BalanceDrift;
+import com.wallet.reconciliation.ReconciliationService;
+
+import static com.wallet.common.Constants.HISTORY_PAGE_SIZE;
+import static com.wallet.common.Constants.SUCCESS;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+@CrossOrigin(origins = "http://localhost:3000/")
+@RestController
+@RequestMapping("/api/v1/reconciliation/runs")
+@RequiredArgsConstructor
+public class ReconciliationController {
+
+    private final Clock clock;
+    private final ReconciliationService reconciliationService;
+
+    /**
+     * Starts a reconciliation run in the background, or resumes the unfinished one
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_ADMIN)")
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReconciliationResponse>> start() {
+        final ReconciliationResponse response = reconciliationService.start();
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+
+    /**
+     * Fetches the progress of the latest reconciliation run
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_ADMIN)")
+    @GetMapping("/latest")
+    public ResponseEntity<ApiResponse<ReconciliationResponse>> findLatest() {
+        final ReconciliationResponse response = reconciliationService.findLatest();
+        return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+
+    /**
+     * Fetches the drift report of the given run, ordered by wallet id. The walletId of the last drift is passed
+     * as the after parameter for fetching the next page.
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_ADMIN)")
+    @GetMapping("/{id}/drifts")
+    public ResponseEntity<ApiResponse<List<BalanceDrift>>> findDrifts(
+            @PathVariable long id,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + HISTORY_PAGE_SIZE) int size) {
+        final List<BalanceDrift> response = reconciliationService.findDrifts(id, after, size);
+        return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+}
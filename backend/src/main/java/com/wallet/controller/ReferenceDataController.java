@@ -0,0 +1,34 @@
+package com.wallet.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.dto.response.ApiResponse;
+
+import static com.wallet.common.Constants.SUCCESS;
+
+import java.time.Clock;
+import java.time.Instant;
+
+@CrossOrigin(origins = "http://localhost:3000/")
+@RestController
+@RequestMapping("/api/v1/reference-data")
+@RequiredArgsConstructor
+public class ReferenceDataController {
+
+    private final Clock clock;
+    private final ReferenceDataRegistry referenceDataRegistry;
+
+    /**
+     * Reloads the types and roles on this instance after they are changed in the database
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_ADMIN)")
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<Void>> refresh() {
+        referenceDataRegistry.refresh();
+        return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS));
+    }
+}
@@ -0,0 +1,35 @@
+package com.wallet.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import com.wallet.dto.response.ApiResponse;
+import com.wallet.dto.response.StatsResponse;
+import com.wallet.stats.StatsService;
+
+import static com.wallet.common.Constants.SUCCESS;
+
+import java.time.Clock;
+import java.time.Instant;
+
+@CrossOrigin(origins = "http://localhost:3000/")
+@RestController
+@RequestMapping("/api/v1/stats")
+@RequiredArgsConstructor
+public class StatsController {
+
+    private final Clock clock;
+    private final StatsService statsService;
+
+    /**
+     * Fetches the wallet, user and transaction totals shown on the dashboard
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
+    @GetMapping
+    public ResponseEntity<ApiResponse<StatsResponse>> getStats() {
+        final StatsResponse response = statsService.getStats();
+        return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+}
@@ -0,0 +1,30 @@
+package com.wallet.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.wallet.security.UserDetailsImpl;
+import com.wallet.stream.WalletStreamHub;
+
+@CrossOrigin(origins = "http://localhost:3000/")
+@RestController
+@RequestMapping("/api/v1/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final WalletStreamHub walletStreamHub;
+
+    /**
+     * Streams the balance changes ("balance" events) and the created transactions ("transaction" events) of the
+     * wallets of the authenticated user
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal UserDetailsImpl user) {
+        return walletStreamHub.subscribe(user.getId());
+    }
+}
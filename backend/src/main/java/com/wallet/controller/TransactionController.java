@@ -2,20 +2,28 @@ package com.wallet.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.wallet.dto.response.ApiResponse;
+import com.wallet.dto.response.CursorPage;
 import com.wallet.dto.response.TransactionResponse;
+import com.wallet.model.ExportFormat;
+import com.wallet.service.TransactionExportService;
 import com.wallet.service.TransactionService;
 
+import static com.wallet.common.Constants.HISTORY_PAGE_SIZE;
+import static com.wallet.common.Constants.INVALID_EXPORT_FORMAT;
 import static com.wallet.common.Constants.SUCCESS;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.UUID;
 
 @CrossOrigin(origins = "http://localhost:3000/")
@@ -26,6 +34,7 @@ public class TransactionController {
 
     private final Clock clock;
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
 
     /**
      * Fetches a single transaction by the given id
@@ -49,12 +58,19 @@ public class TransactionController {
     }
 
     /**
-     * Fetches all transaction by the given userId
+     * Fetches a page of transactions by the given userId, newest first. The nextCursor of the response is passed
+     * as the cursor parameter for fetching the next page. The optional from (inclusive) and to (exclusive) ISO-8601
+     * instants limit the history to the given time range.
      */
     @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
     @GetMapping("/users/{userId}")
-    public ResponseEntity<ApiResponse<Page<TransactionResponse>>> findAllByUserId(@PathVariable long userId) {
-        final Page<TransactionResponse> response = new PageImpl<>(transactionService.findAllByUserId(userId));
+    public ResponseEntity<ApiResponse<CursorPage<TransactionResponse>>> findAllByUserId(
+            @PathVariable long userId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + HISTORY_PAGE_SIZE) int size) {
+        final CursorPage<TransactionResponse> response = transactionService.findAllByUserId(userId, from, to, cursor, size);
         return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
     }
 
@@ -67,4 +83,23 @@ public class TransactionController {
         final Page<TransactionResponse> response = transactionService.findAll(pageable);
         return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
     }
+
+    /**
+     * Streams the transactions of the given userId (or all transactions) as NDJSON or CSV, optionally gzipped
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_ADMIN)")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) Long userId,
+                                                        @RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(defaultValue = "false") boolean gzip) {
+        final ExportFormat exportFormat = Arrays.stream(ExportFormat.values())
+                .filter(value -> value.getExtension().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException(INVALID_EXPORT_FORMAT));
+        final String fileName = "transactions." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(transactionExportService.export(userId, exportFormat, gzip));
+    }
 }
@@ -1,21 +1,31 @@
 package com.wallet.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import com.wallet.dto.request.BatchTransferRequest;
 import com.wallet.dto.request.TransactionRequest;
 import com.wallet.dto.request.WalletRequest;
 import com.wallet.dto.response.ApiResponse;
+import com.wallet.dto.response.BalanceResponse;
+import com.wallet.dto.response.BatchTransferResponse;
 import com.wallet.dto.response.CommandResponse;
 import com.wallet.dto.response.WalletResponse;
+import com.wallet.security.UserDetailsImpl;
+import com.wallet.service.IdempotencyService;
 import com.wallet.service.WalletService;
 
+import static com.wallet.common.Constants.IDEMPOTENCY_KEY;
+import static com.wallet.common.Constants.NOT_SETTLED_BATCH;
 import static com.wallet.common.Constants.SUCCESS;
 
 import java.time.Clock;
@@ -23,6 +33,7 @@ import java.time.Instant;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:3000/")
+@Validated
 @RestController
 @RequestMapping("/api/v1/wallets")
 @RequiredArgsConstructor
@@ -30,6 +41,7 @@ public class WalletController {
 
     private final Clock clock;
     private final WalletService walletService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Fetches a single wallet by the given id
@@ -41,6 +53,18 @@ public class WalletController {
         return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
     }
 
+    /**
+     * Fetches the balance of the given wallet at the given ISO-8601 instant (now by default), calculated from the
+     * ledger
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
+    @GetMapping("/{id}/balance")
+    public ResponseEntity<ApiResponse<BalanceResponse>> findBalanceAt(@PathVariable long id,
+                                                                      @RequestParam(required = false) Instant at) {
+        final BalanceResponse response = walletService.findBalanceAt(id, at);
+        return ResponseEntity.ok(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+
     /**
      * Fetches a single wallet by the given iban
      */
@@ -84,12 +108,34 @@ public class WalletController {
     }
 
     /**
-     * Transfer funds between wallets
+     * Transfer funds between wallets. Repeated requests with the same Idempotency-Key header return the
+     * response of the first request.
      */
     @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
     @PostMapping("/transfer")
-    public ResponseEntity<ApiResponse<CommandResponse>> transferFunds(@Valid @RequestBody TransactionRequest request) {
-        final CommandResponse response = walletService.transferFunds(request);
+    public ResponseEntity<ApiResponse<CommandResponse>> transferFunds(
+            @AuthenticationPrincipal UserDetailsImpl user,
+            @Size(max = 100) @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody TransactionRequest request) {
+        final CommandResponse response = idempotencyService.execute(user.getId(), idempotencyKey, "transfer", request,
+                claim -> walletService.transferFunds(request, claim));
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
+    }
+
+    /**
+     * Transfer funds between wallets for each of the given transfers in a single batch. Returns 207 when any of
+     * the transfers is not settled, with the outcome of each transfer in the results.
+     */
+    @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
+    @PostMapping("/transfers/batch")
+    public ResponseEntity<ApiResponse<BatchTransferResponse>> transferFundsInBatch(@Valid @RequestBody BatchTransferRequest request) {
+        final BatchTransferResponse response = walletService.transferFundsInBatch(request);
+        if (response.failed() > 0)
+            return ResponseEntity
+                    .status(HttpStatus.MULTI_STATUS)
+                    .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), NOT_SETTLED_BATCH, response));
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
@@ -100,8 +146,12 @@ public class WalletController {
      */
     @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
     @PostMapping("/addFunds")
-    public ResponseEntity<ApiResponse<CommandResponse>> addFunds(@Valid @RequestBody TransactionRequest request) {
-        final CommandResponse response = walletService.addFunds(request);
+    public ResponseEntity<ApiResponse<CommandResponse>> addFunds(
+            @AuthenticationPrincipal UserDetailsImpl user,
+            @Size(max = 100) @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody TransactionRequest request) {
+        final CommandResponse response = idempotencyService.execute(user.getId(), idempotencyKey, "addFunds", request,
+                claim -> walletService.addFunds(request, claim));
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
@@ -112,8 +162,12 @@ public class WalletController {
      */
     @PreAuthorize("hasRole(T(com.wallet.model.RoleType).ROLE_USER)")
     @PostMapping("/withdrawFunds")
-    public ResponseEntity<ApiResponse<CommandResponse>> withdrawFunds(@Valid @RequestBody TransactionRequest request) {
-        final CommandResponse response = walletService.withdrawFunds(request);
+    public ResponseEntity<ApiResponse<CommandResponse>> withdrawFunds(
+            @AuthenticationPrincipal UserDetailsImpl user,
+            @Size(max = 100) @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @Valid @RequestBody TransactionRequest request) {
+        final CommandResponse response = idempotencyService.execute(user.getId(), idempotencyKey, "withdrawFunds", request,
+                claim -> walletService.withdrawFunds(request, claim));
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(Instant.now(clock).toEpochMilli(), SUCCESS, response));
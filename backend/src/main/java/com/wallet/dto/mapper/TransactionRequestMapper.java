@@ -2,27 +2,35 @@ package com.wallet.dto.mapper;
 
 import org.mapstruct.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
 
+import com.wallet.cache.WalletCache;
 import com.wallet.dto.request.TransactionRequest;
+import com.wallet.idgen.ReferenceNumberGenerator;
 import com.wallet.model.Transaction;
+import com.wallet.repository.WalletRepository;
 import com.wallet.service.TypeService;
-import com.wallet.service.WalletService;
 
 /**
  * Mapper used for mapping TransactionRequest fields
  */
 @Mapper(componentModel = "spring",
-        uses = {WalletService.class, TypeService.class},
+        uses = {TypeService.class},
         injectionStrategy = InjectionStrategy.CONSTRUCTOR)
 public abstract class TransactionRequestMapper {
 
-    private WalletService walletService;
+    private WalletCache walletCache;
+    private WalletRepository walletRepository;
     private TypeService typeService;
+    protected ReferenceNumberGenerator referenceNumberGenerator;
 
     @Autowired
-    public void setWalletService(@Lazy WalletService walletService) {
-        this.walletService = walletService;
+    public void setWalletCache(WalletCache walletCache) {
+        this.walletCache = walletCache;
+    }
+
+    @Autowired
+    public void setWalletRepository(WalletRepository walletRepository) {
+        this.walletRepository = walletRepository;
     }
 
     @Autowired
@@ -30,9 +38,14 @@ public abstract class TransactionRequestMapper {
         this.typeService = typeService;
     }
 
+    @Autowired
+    public void setReferenceNumberGenerator(ReferenceNumberGenerator referenceNumberGenerator) {
+        this.referenceNumberGenerator = referenceNumberGenerator;
+    }
+
     // set default value of the status field as Status.SUCCESS
-    @Mapping(target = "status", expression = "java(com.github.yildizmy.model.Status.SUCCESS)")
-    @Mapping(target = "referenceNumber", expression = "java(java.util.UUID.randomUUID())")
+    @Mapping(target = "status", expression = "java(com.wallet.model.Status.SUCCESS)")
+    @Mapping(target = "referenceNumber", expression = "java(referenceNumberGenerator.next())")
     @Mapping(source = "createdAt", target = "createdAt", defaultExpression = "java(java.time.Instant.now())")
     @Mapping(target = "fromWallet", ignore = true)
     @Mapping(target = "toWallet", ignore = true)
@@ -43,8 +56,9 @@ public abstract class TransactionRequestMapper {
 
     @AfterMapping
     void setToEntityFields(@MappingTarget Transaction entity, TransactionRequest dto) {
-        entity.setFromWallet(walletService.getByIban(dto.getFromWalletIban()));
-        entity.setToWallet(walletService.getByIban(dto.getToWalletIban()));
+        // wallets are resolved to ids through the cache and set as references, without loading them
+        entity.setFromWallet(walletRepository.getReferenceById(walletCache.get(dto.getFromWalletIban()).id()));
+        entity.setToWallet(walletRepository.getReferenceById(walletCache.get(dto.getToWalletIban()).id()));
         entity.setType(typeService.getReferenceById(dto.getTypeId()));
     }
 }
@@ -5,6 +5,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 
+import com.wallet.cache.ReferenceDataRegistry;
 import com.wallet.dto.response.TransactionResponse;
 import com.wallet.model.Transaction;
 
@@ -15,9 +16,9 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
- * Mapper used for mapping TransactionResponse fields
+ * Mapper used for mapping TransactionResponse fields. Types are mapped from the reference data registry.
  */
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = ReferenceDataRegistry.class)
 public interface TransactionResponseMapper {
 
     Transaction toEntity(TransactionResponse dto);
@@ -0,0 +1,24 @@
+package com.wallet.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for Batch Transfer request
+ */
+@Data
+public class BatchTransferRequest {
+
+    @NotEmpty(message = "{transfers.notempty}")
+    @Size(max = 1000, message = "{transfers.size}")
+    private List<@Valid TransactionRequest> transfers;
+
+    /**
+     * Settles either all the transfers or none of them when true, otherwise settles the valid ones
+     */
+    private boolean atomic = true;
+}
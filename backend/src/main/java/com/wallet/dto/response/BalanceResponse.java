@@ -0,0 +1,13 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Data Transfer Object for the balance of a wallet at a point in time
+ */
+@Builder
+public record BalanceResponse(Long walletId, BigDecimal balance, Instant at) {
+}
@@ -0,0 +1,12 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for a balance change streamed to the owner of the wallet
+ */
+@Builder
+public record BalanceUpdateResponse(Long walletId, String iban, BigDecimal delta, BigDecimal balance) {
+}
@@ -0,0 +1,12 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object used for returning the per-item results of a batch transfer
+ */
+@Builder
+public record BatchTransferResponse(int succeeded, int failed, List<BatchTransferResult> results) {
+}
@@ -0,0 +1,14 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import com.wallet.model.Status;
+
+/**
+ * Data Transfer Object used for returning the result of a single transfer in a batch. Status is SUCCESS for
+ * settled transfers, ERROR for rejected ones and PENDING for valid transfers that are not settled because the
+ * atomic batch is rejected.
+ */
+@Builder
+public record BatchTransferResult(int index, Long id, Status status, String message) {
+}
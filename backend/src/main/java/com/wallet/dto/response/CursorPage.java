@@ -0,0 +1,12 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object used for returning a page of records with the cursor of the next page
+ */
+@Builder
+public record CursorPage<T>(List<T> content, int size, String nextCursor, boolean hasNext) {
+}
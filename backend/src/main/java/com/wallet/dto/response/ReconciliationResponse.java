@@ -0,0 +1,16 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import com.wallet.reconciliation.ReconciliationStatus;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object for the progress of a reconciliation run
+ */
+@Builder
+public record ReconciliationResponse(Long id, ReconciliationStatus status, Instant startedAt, Instant finishedAt,
+                                     Long maxWalletId, Long nextWalletId, Long walletsChecked, Long driftsFound,
+                                     Double walletsPerSecond) {
+}
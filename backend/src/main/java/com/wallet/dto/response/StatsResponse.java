@@ -0,0 +1,14 @@
+package com.wallet.dto.response;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Data Transfer Object for the dashboard statistics
+ */
+@Builder
+public record StatsResponse(Long wallets, Long users, BigDecimal transactionAmount, Long monthlyTransactions,
+                            BigDecimal monthlyTransactionAmount, Instant refreshedAt) {
+}
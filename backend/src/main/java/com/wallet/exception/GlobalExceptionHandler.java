@@ -3,7 +3,9 @@ package com.wallet.exception;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -17,8 +19,11 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import com.wallet.metrics.WalletMetrics;
+
 import static com.wallet.common.Constants.*;
 
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -28,12 +33,24 @@ import java.util.Objects;
 @RestControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+    /**
+     * Messages of the unique constraints guarding against the inserts racing past the existence checks
+     */
+    private static final Map<String, String> UNIQUE_CONSTRAINT_MESSAGES = Map.of(
+            "uc_wallet_iban", ALREADY_EXISTS_WALLET_IBAN,
+            "wallet_user_id_name_key", ALREADY_EXISTS_WALLET_NAME,
+            "uc_user_username", ALREADY_EXISTS_USER_NAME,
+            "uc_user_email", ALREADY_EXISTS_USER_EMAIL);
+
     /**
      * This parameter is used to print StackTrace while debugging. Its value is false by default.
      */
     @Value("${exception.trace:false}")
     private boolean printStackTrace;
 
+    @Autowired
+    private WalletMetrics walletMetrics;
+
     /**
      * Handles MethodArgumentNotValidException
      */
@@ -58,6 +75,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<Object> handleNoSuchElementFoundException(NoSuchElementFoundException ex, WebRequest request) {
         log.error(NOT_FOUND, ex);
+        walletMetrics.exception(ex);
         return buildErrorResponse(ex, HttpStatus.NOT_FOUND, request);
     }
 
@@ -68,9 +86,29 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ResponseStatus(HttpStatus.CONFLICT)
     public ResponseEntity<Object> handleElementAlreadyExistsException(ElementAlreadyExistsException ex, WebRequest request) {
         log.error(ALREADY_EXISTS, ex);
+        walletMetrics.exception(ex);
         return buildErrorResponse(ex, HttpStatus.CONFLICT, request);
     }
 
+    /**
+     * Handles DataIntegrityViolationException, answering the violations of the unique constraints as conflicts
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ResponseEntity<Object> handleDataIntegrityViolationException(DataIntegrityViolationException ex, WebRequest request) {
+        final String cause = Objects.toString(ex.getMostSpecificCause().getMessage(), "");
+        final String message = UNIQUE_CONSTRAINT_MESSAGES.entrySet().stream()
+                .filter(constraint -> cause.contains("\"" + constraint.getKey() + "\""))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(null);
+        if (message == null)
+            return handleAllUncaughtException(ex, request);
+        log.error(ALREADY_EXISTS, ex);
+        walletMetrics.exception(ex);
+        return buildErrorResponse(ex, message, HttpStatus.CONFLICT, request);
+    }
+
     /**
      * Handles custom InsufficientFundsException
      */
@@ -78,6 +116,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<Object> handleInsufficientFundsException(InsufficientFundsException ex, WebRequest request) {
         log.error(METHOD_ARGUMENT_NOT_VALID, ex);
+        walletMetrics.exception(ex);
         return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request);
     }
 
@@ -101,6 +140,16 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request);
     }
 
+    /**
+     * Handles IllegalArgumentException thrown for the invalid request parameters
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ResponseEntity<Object> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
+        log.warn(INVALID_ARGUMENT, ex);
+        return buildErrorResponse(ex, HttpStatus.BAD_REQUEST, request);
+    }
+
     /**
      * Handles all the uncaught exceptions that cannot be caught by the previous methods
      */
@@ -108,6 +157,7 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<Object> handleAllUncaughtException(Exception ex, WebRequest request) {
         log.error(UNKNOWN_ERROR, ex);
+        walletMetrics.exception(ex);
         return buildErrorResponse(ex, UNKNOWN_ERROR, HttpStatus.INTERNAL_SERVER_ERROR, request);
     }
 
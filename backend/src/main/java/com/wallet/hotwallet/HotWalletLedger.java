@@ -0,0 +1,589 @@
+package com.wallet.hotwallet;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.dto.request.TransactionRequest;
+import com.wallet.dto.response.CommandResponse;
+import com.wallet.exception.InsufficientFundsException;
+import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.idgen.ReferenceNumberGenerator;
+import com.wallet.model.Status;
+import com.wallet.repository.IdempotencyKeyJdbcRepository;
+import com.wallet.repository.LedgerJdbcRepository;
+import com.wallet.repository.TransactionJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletRepository;
+import com.wallet.stats.StatsService;
+import com.wallet.stream.WalletActivityEvent;
+
+import static com.wallet.common.Constants.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory ledger for wallets with a high rate of money movements. Balances of the resident wallets are kept
+ * as minor units (e.g. cents) and changed under striped locks, while the balance deltas and the transaction rows
+ * are written to the database by a single flusher thread in batched commits. An operation is acknowledged only
+ * after the batch containing it has been committed.
+ * <p>
+ * Wallets become resident when they are flagged by configuration or when the number of operations on them exceeds
+ * the detection threshold. The ledger assumes that it is the only writer of resident wallets, i.e. a single
+ * application instance serves the hot wallets.
+ */
+@Slf4j(topic = "HotWalletLedger")
+@Component
+@RequiredArgsConstructor
+public class HotWalletLedger {
+
+    private static final int STRIPES = 64;
+
+    private final WalletRepository walletRepository;
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsService statsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceNumberGenerator referenceNumberGenerator;
+
+    @Value("${app.hotWallet.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.hotWallet.ibans:}")
+    private Set<String> flaggedIbans;
+
+    @Value("${app.hotWallet.maxWallets:64}")
+    private int maxWallets;
+
+    @Value("${app.hotWallet.detectionThreshold:200}")
+    private long detectionThreshold;
+
+    @Value("${app.hotWallet.detectionWindowMs:1000}")
+    private long detectionWindowMs;
+
+    @Value("${app.hotWallet.scale:2}")
+    private int scale;
+
+    @Value("${app.hotWallet.batchSize:500}")
+    private int batchSize;
+
+    @Value("${app.hotWallet.flushIntervalMs:5}")
+    private long flushIntervalMs;
+
+    @Value("${app.hotWallet.ackTimeoutMs:5000}")
+    private long ackTimeoutMs;
+
+    private final ReentrantLock[] stripes = createStripes();
+    private final ReentrantLock admissionLock = new ReentrantLock();
+    private final ReentrantReadWriteLock resetLock = new ReentrantReadWriteLock();
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> accessCounts = new ConcurrentHashMap<>();
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>(100_000);
+    private final Set<Long> flaggedIds = ConcurrentHashMap.newKeySet();
+
+    private volatile long windowStart = System.currentTimeMillis();
+    private volatile boolean running;
+    private Thread flusher;
+
+    /**
+     * Balance of a resident wallet in minor units, guarded by the stripe lock of the wallet. While the wallet is
+     * being released, released is set and completed once the account is removed.
+     */
+    private static final class Account {
+        private final long walletId;
+        private long balance;
+        private volatile boolean ready;
+        private volatile CompletableFuture<Void> released;
+
+        private Account(long walletId) {
+            this.walletId = walletId;
+        }
+    }
+
+    /**
+     * Money movement waiting to be flushed, or a barrier (without wallets) completed once the preceding entries
+     * are flushed
+     */
+    private record Entry(long fromWalletId, long toWalletId, Long debitWalletId, Long creditWalletId,
+                         long amount, TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim,
+                         CompletableFuture<CommandResponse> result) {
+
+        private boolean isBarrier() {
+            return request == null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled)
+            return;
+
+        for (String iban : flaggedIbans) {
+            walletRepository.findIdByIban(iban).ifPresentOrElse(flaggedIds::add,
+                    () -> log.warn(HOT_WALLET_NOT_FOUND, iban));
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "hot-wallet-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info(HOT_WALLET_LEDGER_STARTED, flaggedIds.size(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running)
+            return;
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Checks if the given wallet is served by the ledger
+     */
+    public boolean isResident(long walletId) {
+        return accounts.containsKey(walletId);
+    }
+
+    /**
+     * Checks if a money movement between the given wallets should be served by the ledger, which is the case
+     * when one of them is resident, flagged or detected as hot. Amounts that cannot be represented in minor units
+     * are left to the database path unless one of the wallets is already resident.
+     */
+    public boolean accepts(BigDecimal amount, long... walletIds) {
+        if (!running)
+            return false;
+
+        boolean hot = false;
+        boolean resident = false;
+        for (long walletId : walletIds) {
+            resident |= isResident(walletId);
+            hot |= resident || flaggedIds.contains(walletId) || recordAccess(walletId);
+        }
+        return hot && (resident || isRepresentable(amount));
+    }
+
+    /**
+     * Transfers the requested amount between the given wallets
+     */
+    public CommandResponse transfer(long fromWalletId, long toWalletId, TransactionRequest request,
+                                    IdempotencyKeyJdbcRepository.Claim claim) {
+        return submit(fromWalletId, toWalletId, fromWalletId, toWalletId, request, claim);
+    }
+
+    /**
+     * Adds the requested amount to the receiver wallet
+     */
+    public CommandResponse credit(long fromWalletId, long toWalletId, TransactionRequest request,
+                                  IdempotencyKeyJdbcRepository.Claim claim) {
+        return submit(fromWalletId, toWalletId, null, toWalletId, request, claim);
+    }
+
+    /**
+     * Withdraws the requested amount from the sender wallet
+     */
+    public CommandResponse debit(long fromWalletId, long toWalletId, TransactionRequest request,
+                                 IdempotencyKeyJdbcRepository.Claim claim) {
+        return submit(fromWalletId, toWalletId, fromWalletId, null, request, claim);
+    }
+
+    /**
+     * Moves the given wallet back to the database path after its pending changes are flushed. The account stays
+     * resident until then, so the database path keeps routing the wallet here instead of reading a balance
+     * without the pending changes; new operations on the wallet wait for the release and then admit it again.
+     */
+    public void release(long walletId) {
+        final Account account = accounts.get(walletId);
+        if (account == null)
+            return;
+
+        final CompletableFuture<Void> released = new CompletableFuture<>();
+        final CompletableFuture<Void> pending;
+        final ReentrantLock stripe = stripeOf(walletId);
+        stripe.lock();
+        try {
+            if (accounts.get(walletId) != account)
+                return;
+            pending = account.released;
+            if (pending == null)
+                account.released = released;
+        } finally {
+            stripe.unlock();
+        }
+        // another caller is releasing the wallet already
+        if (pending != null) {
+            pending.join();
+            return;
+        }
+
+        // no entry of the account is queued after the barrier, since the released flag is set under its stripe
+        final CompletableFuture<CommandResponse> barrier = new CompletableFuture<>();
+        try {
+            enqueue(new Entry(0, 0, null, null, 0, null, null, barrier));
+        } catch (RuntimeException ex) {
+            account.released = null;
+            released.complete(null);
+            throw ex;
+        }
+        barrier.join();
+        stripe.lock();
+        try {
+            accounts.remove(walletId, account);
+            accessCounts.remove(walletId);
+        } finally {
+            stripe.unlock();
+        }
+        released.complete(null);
+        log.info(HOT_WALLET_RELEASED, walletId);
+    }
+
+    private CommandResponse submit(long fromWalletId, long toWalletId, Long debitWalletId, Long creditWalletId,
+                                   TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        if (!referenceDataRegistry.hasType(request.getTypeId()))
+            throw new NoSuchElementFoundException(NOT_FOUND_TYPE);
+        if (!isRepresentable(request.getAmount()))
+            throw new IllegalArgumentException(HOT_WALLET_AMOUNT_SCALE);
+
+        final long amount = toMinorUnits(request.getAmount());
+        final ReentrantLock[] locks = stripesOf(fromWalletId, toWalletId);
+
+        while (true) {
+            final Account debit = debitWalletId == null ? null : admit(debitWalletId);
+            final Account credit = creditWalletId == null ? null : admit(creditWalletId);
+            Entry entry = null;
+            CompletableFuture<Void> released;
+
+            resetLock.readLock().lock();
+            lock(locks);
+            try {
+                // the accounts may have been released or dropped since they were admitted
+                if ((debit != null && accounts.get(debit.walletId) != debit)
+                        || (credit != null && accounts.get(credit.walletId) != credit))
+                    continue;
+                released = debit != null && debit.released != null ? debit.released
+                        : credit != null ? credit.released : null;
+                if (released == null) {
+                    // check if the balance of sender wallet has equal or higher to/than transfer amount
+                    if (debit != null && debit.balance < amount)
+                        throw new InsufficientFundsException(FUNDS_CANNOT_BELOW_ZERO);
+                    entry = new Entry(fromWalletId, toWalletId, debitWalletId, creditWalletId, amount, request,
+                            claim, new CompletableFuture<>());
+                    enqueue(entry);
+                    if (debit != null)
+                        debit.balance -= amount;
+                    if (credit != null)
+                        credit.balance += amount;
+                }
+            } finally {
+                unlock(locks);
+                resetLock.readLock().unlock();
+            }
+            if (entry != null)
+                return await(entry, debit, credit, locks);
+            // the wallet is being released, it is admitted again once its pending changes are flushed
+            released.join();
+        }
+    }
+
+    /**
+     * Loads the balance of the given wallet into the ledger unless it is already resident. The account is
+     * registered before its row is read, so that the database path (which checks residency after locking the
+     * row) cannot change the balance after it is loaded.
+     */
+    private Account admit(long walletId) {
+        final Account existing = accounts.get(walletId);
+        if (existing != null && existing.ready)
+            return existing;
+
+        admissionLock.lock();
+        try {
+            final Account current = accounts.get(walletId);
+            if (current != null && current.ready)
+                return current;
+
+            final Account account = new Account(walletId);
+            accounts.put(walletId, account);
+            try {
+                final BigDecimal balance = transactionTemplate.execute(status -> walletRepository
+                        .findByIdForUpdate(walletId)
+                        .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET))
+                        .getBalance());
+                account.balance = toMinorUnits(balance);
+                account.ready = true;
+            } catch (RuntimeException ex) {
+                accounts.remove(walletId, account);
+                throw ex;
+            }
+            log.info(HOT_WALLET_ADMITTED, walletId, balance(account));
+            return account;
+        } finally {
+            admissionLock.unlock();
+        }
+    }
+
+    /**
+     * Counts an operation on the given wallet and reports if the wallet is hot enough to become resident
+     */
+    private boolean recordAccess(long walletId) {
+        final long now = System.currentTimeMillis();
+        if (now - windowStart > detectionWindowMs) {
+            windowStart = now;
+            accessCounts.clear();
+        }
+        final LongAdder count = accessCounts.computeIfAbsent(walletId, id -> new LongAdder());
+        count.increment();
+        return count.sum() >= detectionThreshold && accounts.size() < maxWallets;
+    }
+
+    private void enqueue(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(HOT_WALLET_NOT_ACKNOWLEDGED, ex);
+        }
+    }
+
+    /**
+     * Waits for the batch containing the given entry to be committed. An entry not taken by the flusher within
+     * the acknowledgement timeout is cancelled and its balance changes are reverted, so the error returned to the
+     * client means that no money has moved. An entry already being flushed is waited for until its batch commits
+     * or fails.
+     */
+    private CommandResponse await(Entry entry, Account debit, Account credit, ReentrantLock[] locks) {
+        try {
+            return entry.result().get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            if (cancel(entry, debit, credit, locks))
+                throw new IllegalStateException(HOT_WALLET_NOT_ACKNOWLEDGED, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            if (cancel(entry, debit, credit, locks))
+                throw new IllegalStateException(HOT_WALLET_NOT_ACKNOWLEDGED, ex);
+        }
+        try {
+            return entry.result().join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Removes the given entry from the queue and reverts its balance changes, unless the flusher has taken it or
+     * the credited amount has been spent by the entries queued after it. A queued entry keeps its accounts
+     * resident (a release waits behind it and a reset drains it), so the accounts are still the ones it changed.
+     */
+    private boolean cancel(Entry entry, Account debit, Account credit, ReentrantLock[] locks) {
+        resetLock.readLock().lock();
+        lock(locks);
+        try {
+            if ((credit != null && credit.balance < entry.amount()) || !queue.remove(entry))
+                return false;
+            if (debit != null)
+                debit.balance += entry.amount();
+            if (credit != null)
+                credit.balance -= entry.amount();
+            return true;
+        } finally {
+            unlock(locks);
+            resetLock.readLock().unlock();
+        }
+    }
+
+    private void flushLoop() {
+        final List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                final Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error(HOT_WALLET_FLUSH_FAILED, ex);
+                fail(batch, ex);
+                reset(ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the balance deltas, the transaction rows and their ledger entries of the given entries in a single
+     * database transaction. The wallet rows are updated first and in ascending id order, so the ledger entries are
+     * written under the row locks.
+     */
+    private void flush(List<Entry> batch) {
+        final List<Entry> movements = batch.stream().filter(entry -> !entry.isBarrier()).toList();
+        final List<CommandResponse> responses = new ArrayList<>(movements.size());
+
+        if (!movements.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                final List<Long> ids = transactionJdbcRepository.nextIds(movements.size());
+                final Map<Long, BigDecimal> deltas = new TreeMap<>();
+                final List<TransactionJdbcRepository.Row> rows = new ArrayList<>(movements.size());
+                final List<LedgerJdbcRepository.Posting> postings = new ArrayList<>(movements.size());
+                final List<WalletActivityEvent.TransactionCreated> created = new ArrayList<>(movements.size());
+                final List<IdempotencyKeyJdbcRepository.Completion> completions = new ArrayList<>();
+                final Map<Long, String> ibans = new HashMap<>();
+
+                for (int i = 0; i < movements.size(); i++) {
+                    final Entry entry = movements.get(i);
+                    final TransactionRequest request = entry.request();
+                    final BigDecimal amount = BigDecimal.valueOf(entry.amount(), scale);
+                    if (entry.debitWalletId() != null) {
+                        deltas.merge(entry.debitWalletId(), amount.negate(), BigDecimal::add);
+                        ibans.put(entry.debitWalletId(), request.getFromWalletIban());
+                    }
+                    if (entry.creditWalletId() != null) {
+                        deltas.merge(entry.creditWalletId(), amount, BigDecimal::add);
+                        ibans.put(entry.creditWalletId(), request.getToWalletIban());
+                    }
+
+                    final TransactionJdbcRepository.Row row = new TransactionJdbcRepository.Row(ids.get(i),
+                            request.getAmount(), request.getDescription(),
+                            request.getCreatedAt() != null ? request.getCreatedAt() : Instant.now(),
+                            referenceNumberGenerator.next(), Status.SUCCESS, entry.fromWalletId(), entry.toWalletId(),
+                            request.getTypeId());
+                    rows.add(row);
+                    postings.add(new LedgerJdbcRepository.Posting(ids.get(i), entry.debitWalletId(),
+                            entry.creditWalletId(), request.getAmount()));
+                    created.add(new WalletActivityEvent.TransactionCreated(row.id(), row.amount(),
+                            row.description(), row.createdAt(), row.referenceNumber(), row.status(),
+                            request.getFromWalletIban(), request.getToWalletIban(), request.getTypeId()));
+                    responses.add(CommandResponse.builder().id(ids.get(i)).build());
+                    if (entry.claim() != null)
+                        completions.add(new IdempotencyKeyJdbcRepository.Completion(entry.claim(), ids.get(i)));
+                }
+                walletJdbcRepository.applyBalanceDeltas(deltas);
+                transactionJdbcRepository.insertAll(rows);
+                ledgerJdbcRepository.post(postings, Instant.now());
+                // only a single instance serves the hot wallets, so the keys cannot conflict with another writer
+                if (!completions.isEmpty())
+                    idempotencyKeyJdbcRepository.insertAll(completions, Instant.now());
+                statsService.transactionsCreated(rows, TransactionJdbcRepository.Row::createdAt,
+                        TransactionJdbcRepository.Row::amount);
+                // the balances are applied as deltas, so only the deltas are published
+                eventPublisher.publishEvent(new WalletActivityEvent(created, deltas.entrySet().stream()
+                        .map(delta -> new WalletActivityEvent.BalanceChanged(delta.getKey(),
+                                ibans.get(delta.getKey()), delta.getValue(), null))
+                        .toList()));
+            });
+        }
+        for (int i = 0; i < movements.size(); i++) {
+            movements.get(i).result().complete(responses.get(i));
+        }
+        batch.stream().filter(Entry::isBarrier).forEach(entry -> entry.result().complete(null));
+    }
+
+    /**
+     * Drops all the resident wallets after a failed flush, since their in-memory balances contain changes that
+     * are not durable. The entries queued after the failed batch are failed as well, so nothing is acknowledged
+     * that has not been written.
+     */
+    private void reset(RuntimeException cause) {
+        resetLock.writeLock().lock();
+        try {
+            final List<Entry> pending = new ArrayList<>();
+            queue.drainTo(pending);
+            fail(pending, cause);
+            accounts.values().forEach(account -> {
+                if (account.released != null)
+                    account.released.complete(null);
+            });
+            accounts.clear();
+            accessCounts.clear();
+        } finally {
+            resetLock.writeLock().unlock();
+        }
+    }
+
+    private void fail(List<Entry> entries, RuntimeException cause) {
+        for (Entry entry : entries) {
+            if (entry.isBarrier())
+                entry.result().complete(null);
+            else
+                entry.result().completeExceptionally(cause);
+        }
+    }
+
+    private boolean isRepresentable(BigDecimal amount) {
+        return amount.stripTrailingZeros().scale() <= scale;
+    }
+
+    private long toMinorUnits(BigDecimal amount) {
+        return amount.movePointRight(scale).longValueExact();
+    }
+
+    private BigDecimal balance(Account account) {
+        return BigDecimal.valueOf(account.balance, scale);
+    }
+
+    private ReentrantLock stripeOf(long walletId) {
+        return stripes[stripeIndex(walletId)];
+    }
+
+    /**
+     * Stripes of the given wallets in ascending stripe index, which is the order they are locked in. Wallets on
+     * the same stripe share a single lock.
+     */
+    private ReentrantLock[] stripesOf(long walletId, long otherWalletId) {
+        final int index = stripeIndex(walletId);
+        final int otherIndex = stripeIndex(otherWalletId);
+        if (index == otherIndex)
+            return new ReentrantLock[]{stripes[index]};
+        return new ReentrantLock[]{stripes[Math.min(index, otherIndex)], stripes[Math.max(index, otherIndex)]};
+    }
+
+    static int stripeIndex(long walletId) {
+        return (Long.hashCode(walletId) & 0x7fffffff) % STRIPES;
+    }
+
+    private static void lock(ReentrantLock[] locks) {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private static void unlock(ReentrantLock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private static ReentrantLock[] createStripes() {
+        final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
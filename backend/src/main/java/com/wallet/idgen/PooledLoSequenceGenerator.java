@@ -0,0 +1,31 @@
+package com.wallet.idgen;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator using the pooled-lo optimizer: each value read from the sequence is the first id of a block
+ * of ids handed out from memory, so a sequence round trip is made once per block. The block size of a sequence is
+ * read from the {@link #BLOCK_SIZE_SETTING} Hibernate setting (set from app.idgen.*BlockSize), falling back to the
+ * increment_size parameter of the mapping, and has to match the increment of the database sequence.
+ */
+public class PooledLoSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE_SETTING = "wallet.idgen.blockSize.";
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        final Object blockSize = serviceRegistry.getService(ConfigurationService.class).getSettings()
+                .get(BLOCK_SIZE_SETTING + parameters.getProperty(SEQUENCE_PARAM));
+        if (blockSize != null)
+            parameters.setProperty(INCREMENT_PARAM, blockSize.toString());
+        parameters.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.wallet.idgen;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs
+ */
+public class RandomUuidGenerator implements ReferenceNumberGenerator {
+
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
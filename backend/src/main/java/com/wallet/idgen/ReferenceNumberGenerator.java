@@ -0,0 +1,12 @@
+package com.wallet.idgen;
+
+import java.util.UUID;
+
+/**
+ * Generates the reference numbers of the transactions. The implementation is selected by
+ * app.idgen.referenceNumbers (see {@link ReferenceNumberType}).
+ */
+public interface ReferenceNumberGenerator {
+
+    UUID next();
+}
@@ -0,0 +1,17 @@
+package com.wallet.idgen;
+
+/**
+ * Kind of the generated transaction reference numbers
+ */
+public enum ReferenceNumberType {
+
+    /**
+     * Time-ordered version 7 UUIDs, appended to the right side of the reference number index
+     */
+    UUID_V7,
+
+    /**
+     * Random version 4 UUIDs, spread over the whole reference number index
+     */
+    RANDOM
+}
@@ -0,0 +1,45 @@
+package com.wallet.idgen;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered (version 7) UUIDs as described in RFC 9562. The most significant 48 bits hold the Unix
+ * time in milliseconds and the following 12 bits a counter, which starts at a random value in the lower half of its
+ * range each millisecond and is incremented for each UUID generated within the same millisecond. Both are kept in
+ * a single atomic value updated by compare-and-set, so the UUIDs generated by an instance are strictly increasing
+ * without locking, even if the clock moves backwards or the counter overflows (the timestamp then runs slightly
+ * ahead of the clock). The remaining 62 bits are random.
+ */
+public class UuidV7Generator implements ReferenceNumberGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_SEED_BOUND = 1 << (COUNTER_BITS - 1);
+
+    private final Clock clock;
+    // Unix time in milliseconds followed by the counter of the latest UUID
+    private final AtomicLong latest = new AtomicLong();
+
+    public UuidV7Generator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID next() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long previous;
+        long current;
+        do {
+            previous = latest.get();
+            final long seeded = clock.millis() << COUNTER_BITS | random.nextInt(COUNTER_SEED_BOUND);
+            current = seeded >>> COUNTER_BITS > previous >>> COUNTER_BITS ? seeded : previous + 1;
+        } while (!latest.compareAndSet(previous, current));
+
+        // 48 bits of time, the version, 12 bits of counter, the variant and 62 random bits
+        final long mostSigBits = (current >>> COUNTER_BITS) << 16 | 0x7000L | (current & 0xFFFL);
+        final long leastSigBits = random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,9 @@
+package com.wallet.ledger;
+
+import java.math.BigDecimal;
+
+/**
+ * Wallet whose balance differs from the balance derived from its ledger entries
+ */
+public record BalanceDrift(long walletId, BigDecimal balance, BigDecimal ledgerBalance) {
+}
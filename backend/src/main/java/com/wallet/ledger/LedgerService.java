@@ -0,0 +1,119 @@
+package com.wallet.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.wallet.common.Constants.*;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Reads balances from the double-entry ledger. Balance snapshots are taken periodically, so that the balance of a
+ * wallet at any time is its latest snapshot before that time plus the few entries written after the snapshot.
+ * The same snapshots are used by the ReconciliationService for checking the wallet balances against the ledger.
+ */
+@Slf4j(topic = "LedgerService")
+@Service
+public class LedgerService {
+
+    private static final String NEXT_WALLETS = "SELECT id FROM wallet WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String LOCK_WALLETS = "SELECT id FROM wallet WHERE id = ANY (?) ORDER BY id FOR UPDATE SKIP LOCKED";
+
+    private static final String LATEST_SNAPSHOTS = "latest AS (" +
+            "SELECT DISTINCT ON (bs.wallet_id) bs.wallet_id, bs.last_entry_id, bs.balance FROM balance_snapshot bs ";
+
+    private static final String INSERT_SNAPSHOTS = "WITH " + LATEST_SNAPSHOTS +
+            "WHERE bs.wallet_id = ANY (?) ORDER BY bs.wallet_id, bs.last_entry_id DESC) " +
+            "INSERT INTO balance_snapshot (wallet_id, last_entry_id, balance, created_at) " +
+            "SELECT e.wallet_id, max(e.id), coalesce(l.balance, 0) + sum(e.amount), ? " +
+            "FROM ledger_entry e LEFT JOIN latest l ON l.wallet_id = e.wallet_id " +
+            "WHERE e.wallet_id = ANY (?) AND e.id > coalesce(l.last_entry_id, 0) " +
+            "GROUP BY e.wallet_id, l.balance";
+
+    private static final String BALANCE_AT = "WITH s AS (" +
+            "SELECT balance, last_entry_id FROM balance_snapshot " +
+            "WHERE wallet_id = ? AND created_at <= ? ORDER BY last_entry_id DESC LIMIT 1) " +
+            "SELECT coalesce((SELECT balance FROM s), 0) + coalesce(sum(e.amount), 0) FROM ledger_entry e " +
+            "WHERE e.wallet_id = ? AND e.id > coalesce((SELECT last_entry_id FROM s), 0) AND e.created_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int snapshotChunkSize;
+
+    public LedgerService(JdbcTemplate jdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         Clock clock,
+                         @Value("${app.ledger.snapshotChunkSize:500}") int snapshotChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.snapshotChunkSize = snapshotChunkSize;
+    }
+
+    /**
+     * Calculates the balance of the given wallet at the given time from the ledger
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal balanceAt(long walletId, Instant at) {
+        final Timestamp timestamp = toTimestamp(at);
+        return jdbcTemplate.queryForObject(BALANCE_AT, BigDecimal.class, walletId, timestamp, walletId, timestamp);
+    }
+
+    /**
+     * Takes a balance snapshot of each wallet having entries after its latest snapshot. Wallets are locked in
+     * chunks in ascending id order, like the money movements lock them, so that no entry of a chunk is in flight
+     * while its snapshots are taken. Each chunk is stamped with the time read after its locks are acquired, which
+     * is after the entries it covers were written.
+     * <p>
+     * Wallets locked by a money movement are skipped instead of waited for, and get their snapshot in the next run,
+     * so the snapshots never queue behind the transfers. Transfers to the wallets of a chunk still wait for the
+     * snapshot insert of that chunk, so the chunk size bounds that wait.
+     */
+    @Scheduled(cron = "${app.ledger.snapshotCron:0 0 * * * *}", zone = "UTC")
+    public void snapshot() {
+        long lastId = 0;
+        int wallets = 0;
+        int snapshots = 0;
+        while (true) {
+            final List<Long> chunk = jdbcTemplate.queryForList(NEXT_WALLETS, Long.class, lastId, snapshotChunkSize);
+            if (chunk.isEmpty())
+                break;
+            final int[] counts = new int[2];
+            final ConnectionCallback<Void> snapshotChunk = connection -> {
+                final Array chunkIds = connection.createArrayOf("bigint", chunk.toArray());
+                final List<Long> ids = jdbcTemplate.queryForList(LOCK_WALLETS, Long.class, chunkIds);
+                if (ids.isEmpty())
+                    return null;
+                final Array array = connection.createArrayOf("bigint", ids.toArray());
+                final Timestamp now = toTimestamp(Instant.now(clock));
+                counts[0] = ids.size();
+                counts[1] = jdbcTemplate.update(INSERT_SNAPSHOTS, array, now, array);
+                return null;
+            };
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute(snapshotChunk));
+            lastId = chunk.get(chunk.size() - 1);
+            wallets += counts[0];
+            snapshots += counts[1];
+        }
+        log.info(TOOK_BALANCE_SNAPSHOTS, wallets, snapshots);
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
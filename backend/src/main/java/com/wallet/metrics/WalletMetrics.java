@@ -0,0 +1,108 @@
+package com.wallet.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters of the money movement and authentication paths. Timers publish percentile histograms, so latency
+ * percentiles can be calculated (and alerted on) in Prometheus across instances. Connection pool gauges
+ * (hikaricp_*) are registered by Spring Boot.
+ */
+@Component
+public class WalletMetrics {
+
+    private static final String WALLET_OPERATION = "wallet.operation";
+    private static final String OPERATION = "operation";
+
+    private final MeterRegistry registry;
+    private final Timer transfer;
+    private final Timer addFunds;
+    private final Timer withdrawFunds;
+    private final Timer transferBatch;
+    private final Timer createWallet;
+    private final Timer createTransaction;
+    private final Timer lockWait;
+    private final Counter retries;
+    private final Timer tokenAuthentication;
+    private final Timer login;
+
+    public WalletMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.transfer = operationTimer("transfer");
+        this.addFunds = operationTimer("addFunds");
+        this.withdrawFunds = operationTimer("withdrawFunds");
+        this.transferBatch = operationTimer("transferBatch");
+        this.createWallet = operationTimer("create");
+        this.createTransaction = timer("transaction.create", "Time taken to create a transaction record");
+        this.lockWait = timer("wallet.lock.wait", "Time spent waiting for wallet row locks");
+        this.retries = Counter.builder("wallet.operation.retries")
+                .description("Wallet operations retried due to lock contention")
+                .register(registry);
+        this.tokenAuthentication = timer("auth.token", "Time taken to authenticate a request by its JWT");
+        this.login = timer("auth.login", "Time taken to authenticate users by their credentials");
+    }
+
+    public Timer transfer() {
+        return transfer;
+    }
+
+    public Timer addFunds() {
+        return addFunds;
+    }
+
+    public Timer withdrawFunds() {
+        return withdrawFunds;
+    }
+
+    public Timer transferBatch() {
+        return transferBatch;
+    }
+
+    public Timer createWallet() {
+        return createWallet;
+    }
+
+    public Timer createTransaction() {
+        return createTransaction;
+    }
+
+    public Timer lockWait() {
+        return lockWait;
+    }
+
+    public Counter retries() {
+        return retries;
+    }
+
+    public Timer tokenAuthentication() {
+        return tokenAuthentication;
+    }
+
+    public Timer login() {
+        return login;
+    }
+
+    /**
+     * Counts the given exception handled by the API
+     */
+    public void exception(Throwable ex) {
+        registry.counter("wallet.exceptions", "exception", ex.getClass().getSimpleName()).increment();
+    }
+
+    private Timer operationTimer(String operation) {
+        return Timer.builder(WALLET_OPERATION)
+                .description("Time taken by wallet operations")
+                .tag(OPERATION, operation)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
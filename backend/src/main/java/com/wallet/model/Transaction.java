@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -20,10 +22,13 @@ public class Transaction {
             strategy = GenerationType.SEQUENCE,
             generator = "sequence-transaction"
     )
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "sequence-transaction",
-            sequenceName = "sequence_transaction",
-            allocationSize = 5
+            strategy = "com.wallet.idgen.PooledLoSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "sequence_transaction"),
+                    @Parameter(name = "increment_size", value = "50")
+            }
     )
     private Long id;
 
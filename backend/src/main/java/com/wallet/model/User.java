@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -20,10 +22,13 @@ public class User {
             strategy = GenerationType.SEQUENCE,
             generator = "sequence-user"
     )
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "sequence-user",
-            sequenceName = "sequence_user",
-            allocationSize = 5
+            strategy = "com.wallet.idgen.PooledLoSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "sequence_user"),
+                    @Parameter(name = "increment_size", value = "20")
+            }
     )
     private Long id;
 
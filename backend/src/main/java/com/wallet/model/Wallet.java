@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.util.HashSet;
@@ -24,10 +26,13 @@ public class Wallet {
             strategy = GenerationType.SEQUENCE,
             generator = "sequence-wallet"
     )
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "sequence-wallet",
-            sequenceName = "sequence_wallet",
-            allocationSize = 5
+            strategy = "com.wallet.idgen.PooledLoSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "sequence_wallet"),
+                    @Parameter(name = "increment_size", value = "20")
+            }
     )
     private Long id;
 
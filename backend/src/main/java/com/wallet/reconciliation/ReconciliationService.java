@@ -0,0 +1,283 @@
+package com.wallet.reconciliation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.wallet.dto.response.ReconciliationResponse;
+import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.ledger.BalanceDrift;
+import com.wallet.repository.ReconciliationJdbcRepository;
+
+import static com.wallet.common.Constants.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reconciles the balances of all wallets with the ledger. The wallet id space is split into chunks that a bounded
+ * pool of workers claims one by one, so a run never holds a long statement or lock. The checkpoint of a run is
+ * the start of the lowest chunk that is not finished yet; it is stored after each chunk, so a run interrupted by
+ * a restart resumes from it and only repeats the chunks finished above it.
+ * <p>
+ * A run is executed by the instance holding the advisory lock of the runs, so the instances starting runs on
+ * schedule or on request do not reconcile the same chunks twice. The others report the progress stored by it.
+ */
+@Slf4j(topic = "ReconciliationService")
+@Service
+public class ReconciliationService {
+
+    private final ReconciliationJdbcRepository reconciliationJdbcRepository;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final int threads;
+    private final ReentrantLock startLock = new ReentrantLock();
+
+    private volatile Run active;
+
+    /**
+     * State of the run executed by this instance
+     */
+    private static final class Run {
+        private final long id;
+        private final ReconciliationJdbcRepository.RunLock runLock;
+        private final int chunkSize;
+        private final long maxWalletId;
+        private final Instant startedAt;
+        private final Instant resumedAt;
+        private final AtomicLong cursor;
+        private final LongAdder checked = new LongAdder();
+        private final LongAdder drifts = new LongAdder();
+        // finished chunks above the checkpoint and their wallet counts, guarded by the lock of the run
+        private final Map<Long, Integer> finished = new TreeMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private long nextWalletId;
+        private long walletsChecked;
+
+        private Run(ReconciliationJdbcRepository.Run row, ReconciliationJdbcRepository.RunLock runLock,
+                    Instant resumedAt) {
+            this.id = row.id();
+            this.runLock = runLock;
+            this.chunkSize = row.chunkSize();
+            this.maxWalletId = row.maxWalletId();
+            this.startedAt = row.startedAt();
+            this.resumedAt = resumedAt;
+            this.cursor = new AtomicLong(row.nextWalletId());
+            this.nextWalletId = row.nextWalletId();
+            this.walletsChecked = row.walletsChecked();
+        }
+    }
+
+    public ReconciliationService(ReconciliationJdbcRepository reconciliationJdbcRepository,
+                                 Clock clock,
+                                 @Value("${app.reconciliation.enabled:true}") boolean enabled,
+                                 @Value("${app.reconciliation.chunkSize:10000}") int chunkSize,
+                                 @Value("${app.reconciliation.threads:4}") int threads) {
+        this.reconciliationJdbcRepository = reconciliationJdbcRepository;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Resumes the run interrupted by the previous shutdown, if any
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (enabled && reconciliationJdbcRepository.findLatestRun()
+                .filter(run -> run.status() == ReconciliationStatus.RUNNING).isPresent())
+            start();
+    }
+
+    @Scheduled(cron = "${app.reconciliation.cron:0 0 3 * * *}", zone = "UTC")
+    public void scheduledStart() {
+        if (enabled)
+            start();
+    }
+
+    /**
+     * Starts a new run, or resumes the latest run if it is not finished, in the background
+     */
+    public ReconciliationResponse start() {
+        // not synchronized, since a virtual thread would stay pinned to its carrier during the queries
+        startLock.lock();
+        try {
+            return startRun();
+        } finally {
+            startLock.unlock();
+        }
+    }
+
+    private ReconciliationResponse startRun() {
+        if (active != null)
+            return toResponse(active);
+
+        final Optional<ReconciliationJdbcRepository.RunLock> runLock = reconciliationJdbcRepository.tryLockRuns();
+        if (runLock.isEmpty()) {
+            log.info(SKIPPED_RECONCILIATION);
+            return findLatest();
+        }
+        final Instant now = Instant.now(clock);
+        final ReconciliationJdbcRepository.Run row;
+        try {
+            row = reconciliationJdbcRepository.findLatestRun()
+                    .filter(latest -> latest.status() == ReconciliationStatus.RUNNING)
+                    .orElseGet(() -> reconciliationJdbcRepository
+                            .findRun(reconciliationJdbcRepository.createRun(now, chunkSize))
+                            .orElseThrow());
+        } catch (RuntimeException ex) {
+            runLock.get().close();
+            throw ex;
+        }
+        final Run run = new Run(row, runLock.get(), now);
+        active = run;
+        log.info(STARTED_RECONCILIATION, new Object[]{run.id, run.nextWalletId, run.maxWalletId});
+
+        final Thread coordinator = new Thread(() -> execute(run), "reconciliation-" + run.id);
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return toResponse(run);
+    }
+
+    /**
+     * Fetches the progress of the latest run
+     */
+    public ReconciliationResponse findLatest() {
+        final Run run = active;
+        if (run != null)
+            return toResponse(run);
+        return reconciliationJdbcRepository.findLatestRun()
+                .map(this::toResponse)
+                .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_RECORD));
+    }
+
+    /**
+     * Fetches the drifts found by the given run, ordered by wallet id and starting after the given wallet id
+     */
+    public List<BalanceDrift> findDrifts(long runId, long afterWalletId, int size) {
+        if (reconciliationJdbcRepository.findRun(runId).isEmpty())
+            throw new NoSuchElementFoundException(NOT_FOUND_RECORD);
+        return reconciliationJdbcRepository.findDrifts(runId, afterWalletId,
+                Math.max(1, Math.min(size, HISTORY_MAX_PAGE_SIZE)));
+    }
+
+    private void execute(Run run) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ReconciliationStatus status = ReconciliationStatus.FAILED;
+        try {
+            final List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++)
+                workers.add(executor.submit(() -> work(run)));
+            for (Future<?> worker : workers)
+                worker.get();
+            status = ReconciliationStatus.COMPLETED;
+        } catch (Exception ex) {
+            log.error(FAILED_RECONCILIATION, run.id, ex.getMessage());
+        } finally {
+            executor.shutdownNow();
+            try {
+                reconciliationJdbcRepository.finishRun(run.id, status, Instant.now(clock));
+            } finally {
+                active = null;
+                run.runLock.close();
+            }
+        }
+        log.info(RECONCILED_BALANCES, new Object[]{run.id, run.walletsChecked, walletsPerSecond(run)});
+    }
+
+    /**
+     * Claims and reconciles chunks until the id space of the run is exhausted
+     */
+    private void work(Run run) {
+        long start;
+        while ((start = run.cursor.getAndAdd(run.chunkSize)) <= run.maxWalletId) {
+            final ReconciliationJdbcRepository.ChunkResult result =
+                    reconciliationJdbcRepository.reconcile(run.id, start, start + run.chunkSize);
+            run.checked.add(result.wallets());
+            run.drifts.add(result.drifts());
+            checkpoint(run, start, result.wallets());
+        }
+    }
+
+    /**
+     * Moves the checkpoint over the finished chunks directly above it
+     */
+    private void checkpoint(Run run, long start, int wallets) {
+        run.lock.lock();
+        try {
+            run.finished.put(start, wallets);
+            boolean moved = false;
+            while (run.finished.containsKey(run.nextWalletId)) {
+                run.walletsChecked += run.finished.remove(run.nextWalletId);
+                run.nextWalletId += run.chunkSize;
+                moved = true;
+            }
+            if (moved)
+                reconciliationJdbcRepository.checkpoint(run.id, run.nextWalletId, run.walletsChecked);
+        } finally {
+            run.lock.unlock();
+        }
+    }
+
+    private double walletsPerSecond(Run run) {
+        final long millis = Math.max(1, Duration.between(run.resumedAt, Instant.now(clock)).toMillis());
+        return run.checked.sum() * 1000.0 / millis;
+    }
+
+    private ReconciliationResponse toResponse(Run run) {
+        final long nextWalletId;
+        final long checkpointed;
+        final long aboveCheckpoint;
+        run.lock.lock();
+        try {
+            nextWalletId = run.nextWalletId;
+            checkpointed = run.walletsChecked;
+            aboveCheckpoint = run.finished.values().stream().mapToLong(Integer::longValue).sum();
+        } finally {
+            run.lock.unlock();
+        }
+        return ReconciliationResponse.builder()
+                .id(run.id)
+                .status(ReconciliationStatus.RUNNING)
+                .startedAt(run.startedAt)
+                .maxWalletId(run.maxWalletId)
+                .nextWalletId(nextWalletId)
+                .walletsChecked(checkpointed + aboveCheckpoint)
+                .driftsFound(run.drifts.sum())
+                .walletsPerSecond(walletsPerSecond(run))
+                .build();
+    }
+
+    private ReconciliationResponse toResponse(ReconciliationJdbcRepository.Run run) {
+        final Instant end = run.finishedAt() != null ? run.finishedAt() : Instant.now(clock);
+        final long millis = Math.max(1, Duration.between(run.startedAt(), end).toMillis());
+        return ReconciliationResponse.builder()
+                .id(run.id())
+                .status(run.status())
+                .startedAt(run.startedAt())
+                .finishedAt(run.finishedAt())
+                .maxWalletId(run.maxWalletId())
+                .nextWalletId(run.nextWalletId())
+                .walletsChecked(run.walletsChecked())
+                .driftsFound(run.driftsFound())
+                .walletsPerSecond(run.walletsChecked() * 1000.0 / millis)
+                .build();
+    }
+}
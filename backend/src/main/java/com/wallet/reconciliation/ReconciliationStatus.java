@@ -0,0 +1,8 @@
+package com.wallet.reconciliation;
+
+public enum ReconciliationStatus {
+
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,75 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository used for the idempotency keys of the money movements. A key is written in the transaction moving
+ * the money, so a key exists exactly when its money movement is committed; a concurrent request with the same
+ * key fails on the primary key and is answered with the stored response.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyKeyJdbcRepository {
+
+    private static final String FIND = "SELECT operation, request_digest, response_id FROM idempotency_key " +
+            "WHERE user_id = ? AND id = ?";
+
+    private static final String INSERT = "INSERT INTO idempotency_key " +
+            "(user_id, id, operation, request_digest, response_id, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String DELETE_CREATED_BEFORE = "DELETE FROM idempotency_key WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Key of a user, with the operation and the SHA-256 digest of the request it is used for
+     */
+    public record Claim(long userId, String key, String operation, String requestDigest) {
+    }
+
+    /**
+     * Completed request stored by its key
+     */
+    public record Stored(String operation, String requestDigest, long responseId) {
+    }
+
+    /**
+     * Claim together with the id of the response of its request
+     */
+    public record Completion(Claim claim, long responseId) {
+    }
+
+    public Optional<Stored> find(long userId, String key) {
+        return jdbcTemplate.query(FIND, (rs, rowNum) -> new Stored(rs.getString("operation"),
+                rs.getString("request_digest"), rs.getLong("response_id")), userId, key).stream().findFirst();
+    }
+
+    /**
+     * Inserts the given completions using a single JDBC batch. Fails if a key is already used by the user.
+     */
+    public void insertAll(List<Completion> completions, Instant createdAt) {
+        final Timestamp timestamp = Timestamp.valueOf(LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC));
+        jdbcTemplate.batchUpdate(INSERT, completions, completions.size(), (ps, completion) -> {
+            ps.setLong(1, completion.claim().userId());
+            ps.setString(2, completion.claim().key());
+            ps.setString(3, completion.claim().operation());
+            ps.setString(4, completion.claim().requestDigest());
+            ps.setLong(5, completion.responseId());
+            ps.setTimestamp(6, timestamp);
+        });
+    }
+
+    public int deleteAllCreatedBefore(Instant threshold) {
+        return jdbcTemplate.update(DELETE_CREATED_BEFORE,
+                Timestamp.valueOf(LocalDateTime.ofInstant(threshold, ZoneOffset.UTC)));
+    }
+}
@@ -0,0 +1,58 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Repository used for writing ledger entries in JDBC batches. Entries of a wallet have to be written in a database
+ * transaction holding the lock of the wallet row (see V9 migration).
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerJdbcRepository {
+
+    private static final String INSERT = "INSERT INTO ledger_entry (id, wallet_id, transaction_id, amount, created_at) " +
+            "VALUES (nextval('sequence_ledger_entry'), ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Movement of the given amount from the debit wallet to the credit wallet, booked as two entries. A missing
+     * wallet stands for the external account, and a missing transaction for a manual balance change.
+     */
+    public record Posting(Long transactionId, Long debitWalletId, Long creditWalletId, BigDecimal amount) {
+    }
+
+    private record Entry(Long walletId, Long transactionId, BigDecimal amount) {
+    }
+
+    /**
+     * Writes the entries of the given postings using a single JDBC batch
+     */
+    public void post(List<Posting> postings, Instant createdAt) {
+        final List<Entry> entries = new ArrayList<>(postings.size() * 2);
+        for (Posting posting : postings) {
+            if (posting.amount().signum() == 0)
+                continue;
+            entries.add(new Entry(posting.debitWalletId(), posting.transactionId(), posting.amount().negate()));
+            entries.add(new Entry(posting.creditWalletId(), posting.transactionId(), posting.amount()));
+        }
+        final Timestamp timestamp = Timestamp.valueOf(LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC));
+        jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setObject(1, entry.walletId(), Types.BIGINT);
+            ps.setObject(2, entry.transactionId(), Types.BIGINT);
+            ps.setBigDecimal(3, entry.amount());
+            ps.setTimestamp(4, timestamp);
+        });
+    }
+}
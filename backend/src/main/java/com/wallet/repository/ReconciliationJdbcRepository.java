@@ -0,0 +1,194 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import com.wallet.ledger.BalanceDrift;
+import com.wallet.reconciliation.ReconciliationStatus;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Repository used for the reconciliation runs, their checkpoints and drift reports
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReconciliationJdbcRepository {
+
+    // key of the session-level advisory lock held by the instance executing a run
+    private static final long RUN_LOCK_KEY = 0x7265636f6e63L;
+
+    private static final String SELECT_RUN = "SELECT id, status, started_at, finished_at, chunk_size, max_wallet_id, " +
+            "next_wallet_id, wallets_checked, drifts_found FROM reconciliation_run ";
+
+    private static final String INSERT_RUN = "INSERT INTO reconciliation_run (id, status, started_at, chunk_size, " +
+            "max_wallet_id, next_wallet_id, wallets_checked, drifts_found) " +
+            "VALUES (nextval('sequence_reconciliation_run'), ?, ?, ?, ?, 0, 0, 0) RETURNING id";
+
+    /**
+     * Balance of each wallet in the id range next to its latest snapshot plus the entries written after it. The
+     * statement reads a consistent snapshot of the database, so money movements committed meanwhile are either
+     * seen on both sides or on neither.
+     */
+    private static final String SCAN = "WITH w AS (SELECT id, balance FROM wallet WHERE id >= ? AND id < ?), " +
+            "latest AS (SELECT DISTINCT ON (bs.wallet_id) bs.wallet_id, bs.last_entry_id, bs.balance " +
+            "FROM balance_snapshot bs JOIN w ON w.id = bs.wallet_id ORDER BY bs.wallet_id, bs.last_entry_id DESC) " +
+            "SELECT w.id, w.balance, coalesce(l.balance, 0) + coalesce(t.amount, 0) AS ledger_balance " +
+            "FROM w LEFT JOIN latest l ON l.wallet_id = w.id " +
+            "LEFT JOIN LATERAL (SELECT sum(e.amount) AS amount FROM ledger_entry e " +
+            "WHERE e.wallet_id = w.id AND e.id > coalesce(l.last_entry_id, 0)) t ON true";
+
+    private static final String INSERT_DRIFT = "INSERT INTO reconciliation_drift (run_id, wallet_id, balance, ledger_balance) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (run_id, wallet_id) " +
+            "DO UPDATE SET balance = excluded.balance, ledger_balance = excluded.ledger_balance";
+
+    private static final RowMapper<Run> RUN_MAPPER = (rs, rowNum) -> new Run(
+            rs.getLong("id"),
+            ReconciliationStatus.valueOf(rs.getString("status")),
+            toInstant(rs.getTimestamp("started_at")),
+            toInstant(rs.getTimestamp("finished_at")),
+            rs.getInt("chunk_size"),
+            rs.getLong("max_wallet_id"),
+            rs.getLong("next_wallet_id"),
+            rs.getLong("wallets_checked"),
+            rs.getLong("drifts_found"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Row of the reconciliation_run table
+     */
+    public record Run(long id, ReconciliationStatus status, Instant startedAt, Instant finishedAt, int chunkSize,
+                      long maxWalletId, long nextWalletId, long walletsChecked, long driftsFound) {
+    }
+
+    /**
+     * Number of wallets checked and drifts found in a chunk
+     */
+    public record ChunkResult(int wallets, int drifts) {
+    }
+
+    /**
+     * Advisory lock of the runs, held by its own connection until closed
+     */
+    public record RunLock(Connection connection) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            try (connection; PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, RUN_LOCK_KEY);
+                statement.execute();
+            } catch (SQLException ex) {
+                throw new DataAccessResourceFailureException(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Takes the advisory lock of the runs on a connection of its own, or returns empty when another instance holds
+     * it. The lock is released when the connection closes, so it is also released when the instance dies.
+     */
+    public Optional<RunLock> tryLockRuns() {
+        Connection connection = null;
+        try {
+            connection = Objects.requireNonNull(jdbcTemplate.getDataSource()).getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, RUN_LOCK_KEY);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1))
+                        return Optional.of(new RunLock(connection));
+                }
+            }
+            connection.close();
+            return Optional.empty();
+        } catch (SQLException ex) {
+            JdbcUtils.closeConnection(connection);
+            throw new DataAccessResourceFailureException(ex.getMessage(), ex);
+        }
+    }
+
+    public Optional<Run> findLatestRun() {
+        return jdbcTemplate.query(SELECT_RUN + "ORDER BY id DESC LIMIT 1", RUN_MAPPER).stream().findFirst();
+    }
+
+    public Optional<Run> findRun(long id) {
+        return jdbcTemplate.query(SELECT_RUN + "WHERE id = ?", RUN_MAPPER, id).stream().findFirst();
+    }
+
+    public long createRun(Instant startedAt, int chunkSize) {
+        final Long maxWalletId = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM wallet", Long.class);
+        return jdbcTemplate.queryForObject(INSERT_RUN, Long.class, ReconciliationStatus.RUNNING.name(),
+                toTimestamp(startedAt), chunkSize, maxWalletId);
+    }
+
+    public void checkpoint(long runId, long nextWalletId, long walletsChecked) {
+        jdbcTemplate.update("UPDATE reconciliation_run SET next_wallet_id = ?, wallets_checked = ? WHERE id = ?",
+                nextWalletId, walletsChecked, runId);
+    }
+
+    public void finishRun(long runId, ReconciliationStatus status, Instant finishedAt) {
+        jdbcTemplate.update("UPDATE reconciliation_run SET status = ?, finished_at = ?, " +
+                        "drifts_found = (SELECT count(*) FROM reconciliation_drift WHERE run_id = ?) WHERE id = ?",
+                status.name(), toTimestamp(finishedAt), runId, runId);
+    }
+
+    /**
+     * Compares the balances of the wallets in the given id range with the ledger and stores the drifts. Rows are
+     * aggregated while they are streamed, so only the drifts of the chunk are kept in memory.
+     */
+    public ChunkResult reconcile(long runId, long fromWalletId, long toWalletId) {
+        final List<BalanceDrift> drifts = new ArrayList<>();
+        final int[] wallets = new int[1];
+        jdbcTemplate.query(SCAN, rs -> {
+            wallets[0]++;
+            final BigDecimal balance = rs.getBigDecimal("balance");
+            final BigDecimal ledgerBalance = rs.getBigDecimal("ledger_balance");
+            if (balance.compareTo(ledgerBalance) != 0)
+                drifts.add(new BalanceDrift(rs.getLong("id"), balance, ledgerBalance));
+        }, fromWalletId, toWalletId);
+
+        if (!drifts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_DRIFT, drifts, drifts.size(), (ps, drift) -> {
+                ps.setLong(1, runId);
+                ps.setLong(2, drift.walletId());
+                ps.setBigDecimal(3, drift.balance());
+                ps.setBigDecimal(4, drift.ledgerBalance());
+            });
+        }
+        return new ChunkResult(wallets[0], drifts.size());
+    }
+
+    /**
+     * Fetches the drifts of the given run ordered by wallet id, starting after the given wallet id
+     */
+    public List<BalanceDrift> findDrifts(long runId, long afterWalletId, int limit) {
+        return jdbcTemplate.query("SELECT wallet_id, balance, ledger_balance FROM reconciliation_drift " +
+                        "WHERE run_id = ? AND wallet_id > ? ORDER BY wallet_id LIMIT ?",
+                (rs, rowNum) -> new BalanceDrift(rs.getLong("wallet_id"), rs.getBigDecimal("balance"),
+                        rs.getBigDecimal("ledger_balance")), runId, afterWalletId, limit);
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC);
+    }
+}
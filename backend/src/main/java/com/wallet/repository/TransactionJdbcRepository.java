@@ -0,0 +1,75 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.wallet.model.Status;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository used for inserting transactions in JDBC batches, bypassing the persistence context
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionJdbcRepository {
+
+    private static final String NEXT_BLOCKS = "SELECT nextval('sequence_transaction') FROM generate_series(1, ?)";
+
+    private static final String INSERT = "INSERT INTO transaction " +
+            "(id, amount, description, created_at, reference_number, status, from_wallet_id, to_wallet_id, type_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // ids are taken in blocks like the pooled-lo optimizer of the entity, each sequence value being a block start
+    @Value("${app.idgen.transactionBlockSize:50}")
+    private int blockSize;
+
+    /**
+     * Row of the transaction table
+     */
+    public record Row(long id, BigDecimal amount, String description, Instant createdAt, UUID referenceNumber,
+                      Status status, long fromWalletId, long toWalletId, long typeId) {
+    }
+
+    /**
+     * Fetches the given number of transaction ids from the sequence using a single statement. The unused ids of
+     * the last block are skipped.
+     */
+    public List<Long> nextIds(int count) {
+        final List<Long> starts = jdbcTemplate.queryForList(NEXT_BLOCKS, Long.class, (count + blockSize - 1) / blockSize);
+        final List<Long> ids = new ArrayList<>(count);
+        for (long start : starts) {
+            for (int i = 0; i < blockSize && ids.size() < count; i++)
+                ids.add(start + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Inserts the given rows using a single JDBC batch
+     */
+    public void insertAll(List<Row> rows) {
+        jdbcTemplate.batchUpdate(INSERT, rows, rows.size(), (ps, row) -> {
+            ps.setLong(1, row.id());
+            ps.setBigDecimal(2, row.amount());
+            ps.setString(3, row.description());
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.ofInstant(row.createdAt(), ZoneOffset.UTC)));
+            ps.setObject(5, row.referenceNumber());
+            ps.setString(6, row.status().name());
+            ps.setLong(7, row.fromWalletId());
+            ps.setLong(8, row.toWalletId());
+            ps.setLong(9, row.typeId());
+        });
+    }
+}
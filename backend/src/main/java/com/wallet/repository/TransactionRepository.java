@@ -1,5 +1,8 @@
 package com.wallet.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -7,6 +10,8 @@ import org.springframework.stereotype.Repository;
 
 import com.wallet.model.Transaction;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,10 +21,56 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
 
     Optional<Transaction> findByReferenceNumber(UUID referenceNumber);
 
-    @Query(value = "SELECT t " +
-            "FROM Transaction t " +
-            "LEFT JOIN Wallet w ON w.id IN (t.fromWallet.id, t.toWallet.id) " +
-            "WHERE w.user.id = :userId " +
-            "ORDER BY t.createdAt DESC")
-    List<Transaction> findAllByUserId(@Param("userId") Long userId);
+    /**
+     * Read paths below fetch the wallets and their users in the same query as the transactions. Roles of the
+     * users are loaded in a single batch (hibernate.default_batch_fetch_size) while mapping and types are
+     * mapped from the reference data registry.
+     */
+    @EntityGraph(attributePaths = {"fromWallet.user", "toWallet.user"})
+    Optional<Transaction> findWithDetailsById(Long id);
+
+    /**
+     * Reference numbers are not unique in the database (see V8 migration), so the newest match is returned
+     */
+    @EntityGraph(attributePaths = {"fromWallet.user", "toWallet.user"})
+    Optional<Transaction> findFirstWithDetailsByReferenceNumberOrderByCreatedAtDescIdDesc(UUID referenceNumber);
+
+    @EntityGraph(attributePaths = {"fromWallet.user", "toWallet.user"})
+    Page<Transaction> findAllWithDetailsBy(Pageable pageable);
+
+    /**
+     * Fetches the ids of a user's transactions older than the given (createdAt, id) position and not older than
+     * the given from, newest first. Each wallet of the user is read through the (from_wallet_id, created_at, id)
+     * and (to_wallet_id, created_at, id) indexes with a limit, so the cost does not depend on the history length.
+     * The plain created_at bounds let the planner skip the monthly partitions outside of the requested range.
+     */
+    @Query(value = "SELECT p.id FROM (" +
+            "SELECT DISTINCT x.id, x.created_at " +
+            "FROM wallet w " +
+            "CROSS JOIN LATERAL (" +
+            "(SELECT t.id, t.created_at FROM transaction t " +
+            "WHERE t.from_wallet_id = w.id AND (t.created_at, t.id) < (:createdAt, :id) " +
+            "AND t.created_at >= :from AND t.created_at <= :createdAt " +
+            "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit) " +
+            "UNION ALL " +
+            "(SELECT t.id, t.created_at FROM transaction t " +
+            "WHERE t.to_wallet_id = w.id AND (t.created_at, t.id) < (:createdAt, :id) " +
+            "AND t.created_at >= :from AND t.created_at <= :createdAt " +
+            "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit)" +
+            ") x " +
+            "WHERE w.user_id = :userId" +
+            ") p " +
+            "ORDER BY p.created_at DESC, p.id DESC " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Long> findPageIdsByUserId(@Param("userId") Long userId,
+                                   @Param("from") Instant from,
+                                   @Param("createdAt") Instant createdAt,
+                                   @Param("id") Long id,
+                                   @Param("limit") int limit);
+
+    @EntityGraph(attributePaths = {"fromWallet.user", "toWallet.user"})
+    @Query("SELECT t FROM Transaction t WHERE t.id IN :ids AND t.createdAt >= :from AND t.createdAt <= :to")
+    List<Transaction> findAllByIdIn(@Param("ids") Collection<Long> ids,
+                                    @Param("from") Instant from,
+                                    @Param("to") Instant to);
 }
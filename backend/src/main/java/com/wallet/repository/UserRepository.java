@@ -12,6 +12,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByUsername(String username);
 
+    /**
+     * Derived ignore-case checks compare upper(column) = upper(?), served by the expression indexes of V13
+     */
     boolean existsByUsernameIgnoreCase(String name);
 
     boolean existsByEmailIgnoreCase(String email);
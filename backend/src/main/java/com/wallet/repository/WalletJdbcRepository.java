@@ -0,0 +1,64 @@
+package com.wallet.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Repository used for updating wallet balances in JDBC batches, bypassing the persistence context
+ */
+@Repository
+@RequiredArgsConstructor
+public class WalletJdbcRepository {
+
+    private static final String APPLY_DELTA = "UPDATE wallet SET balance = balance + ? WHERE id = ?";
+
+    private static final String UPDATE_BALANCE = "UPDATE wallet SET balance = ? WHERE id = ?";
+
+    private static final String LOCK_BY_IBANS = "SELECT id, iban, balance FROM wallet " +
+            "WHERE iban IN (:ibans) ORDER BY id FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Balance of a wallet row
+     */
+    public record Balance(long id, String iban, BigDecimal balance) {
+    }
+
+    /**
+     * Locks the wallets with the given ibans in ascending id order using a single statement
+     */
+    public List<Balance> lockByIbans(Collection<String> ibans) {
+        return namedParameterJdbcTemplate.query(LOCK_BY_IBANS, Map.of("ibans", ibans),
+                (rs, rowNum) -> new Balance(rs.getLong("id"), rs.getString("iban"), rs.getBigDecimal("balance")));
+    }
+
+    /**
+     * Sets the given balances (keyed by wallet id) using a single JDBC batch
+     */
+    public void updateBalances(Map<Long, BigDecimal> balances) {
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE, new ArrayList<>(balances.entrySet()), balances.size(), (ps, balance) -> {
+            ps.setBigDecimal(1, balance.getValue());
+            ps.setLong(2, balance.getKey());
+        });
+    }
+
+    /**
+     * Adds the given deltas (keyed by wallet id) to the wallet balances using a single JDBC batch
+     */
+    public void applyBalanceDeltas(Map<Long, BigDecimal> deltas) {
+        jdbcTemplate.batchUpdate(APPLY_DELTA, new ArrayList<>(deltas.entrySet()), deltas.size(), (ps, delta) -> {
+            ps.setBigDecimal(1, delta.getValue());
+            ps.setLong(2, delta.getKey());
+        });
+    }
+}
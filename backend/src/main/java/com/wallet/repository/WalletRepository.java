@@ -1,10 +1,19 @@
 package com.wallet.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.wallet.cache.WalletRef;
 import com.wallet.model.Wallet;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,9 +24,44 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     List<Wallet> findByUserId(Long userId);
 
+    /**
+     * Read paths below fetch the user in the same query as the wallets.
+     * Roles of the users are loaded in a single batch (hibernate.default_batch_fetch_size) while mapping.
+     */
+    @EntityGraph(attributePaths = {"user"})
+    Optional<Wallet> findWithUserById(Long id);
+
+    @EntityGraph(attributePaths = {"user"})
+    Optional<Wallet> findWithUserByIban(String iban);
+
+    @EntityGraph(attributePaths = {"user"})
+    List<Wallet> findWithUserByUserId(Long userId);
+
+    @EntityGraph(attributePaths = {"user"})
+    Page<Wallet> findAllWithUserBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user"})
+    List<Wallet> findAllWithUserByIdIn(Collection<Long> ids);
+
+    @Query("SELECT w.id FROM Wallet w WHERE w.user.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
+    /**
+     * Derived ignore-case checks compare upper(column) = upper(?), served by the expression indexes of V13
+     */
     boolean existsByIbanIgnoreCase(String iban);
 
     boolean existsByUserIdAndNameIgnoreCase(Long userId, String name);
 
     Wallet getReferenceByIban(String iban);
+
+    @Query("SELECT w.id FROM Wallet w WHERE w.iban = :iban")
+    Optional<Long> findIdByIban(@Param("iban") String iban);
+
+    @Query("SELECT new com.wallet.cache.WalletRef(w.id, w.name, w.user.id) FROM Wallet w WHERE w.iban = :iban")
+    Optional<WalletRef> findRefByIban(@Param("iban") String iban);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id = :id")
+    Optional<Wallet> findByIdForUpdate(@Param("id") Long id);
 }
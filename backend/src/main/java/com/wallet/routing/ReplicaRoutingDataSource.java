@@ -0,0 +1,255 @@
+package com.wallet.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.wallet.security.UserDetailsImpl;
+
+import static com.wallet.common.Constants.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Routes the connections of read-only transactions to the replicas and all the others to the primary. A replica
+ * is picked round-robin or by its number of active connections, among the replicas whose replication lag is
+ * within the limit. Reads fall back to the primary when no replica qualifies, and the reads of a user are pinned
+ * to the primary for a while after each write of the user, so the user does not read data older than the write.
+ * The pin is recorded before the writing transaction commits, so no read can see the commit before the pin.
+ * <p>
+ * Pins are kept in memory, so they only cover the reads served by the instance that served the write. With more
+ * than one instance behind the load balancer, the sessions have to stick to an instance for the read-your-writes
+ * window, or the reads following a write may be served from a replica by another instance.
+ * <p>
+ * The routing decision is made when the physical connection is fetched, so this data source has to be wrapped
+ * in a LazyConnectionDataSourceProxy; otherwise the connection is fetched before the transaction is marked as
+ * read-only.
+ */
+@Slf4j(topic = "ReplicaRoutingDataSource")
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    static final String LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaSelection selection;
+    private final long maxLagMs;
+    private final Cache<Long, Boolean> pinnedUsers;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter lagFallbacks;
+    private final Counter pinnedReads;
+
+    // set while the connections of the current thread have to come from the primary
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    /**
+     * Replica data source, with its number of active connections and its replication lag (-1 if unreachable)
+     */
+    public static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final IntSupplier activeConnections;
+        private volatile long lagMs = -1;
+
+        public Replica(String name, DataSource dataSource, IntSupplier activeConnections) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.activeConnections = activeConnections;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    List<Replica> replicas,
+                                    ReplicaSelection selection,
+                                    long maxLagMs,
+                                    Duration readYourWritesWindow,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.selection = selection;
+        this.maxLagMs = maxLagMs;
+        this.pinnedUsers = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        this.lagFallbacks = Counter.builder("datasource.routing.fallback")
+                .description("Read-only transactions routed to the primary")
+                .tag("reason", "lag")
+                .register(meterRegistry);
+        this.pinnedReads = Counter.builder("datasource.routing.fallback")
+                .description("Read-only transactions routed to the primary")
+                .tag("reason", "readYourWrites")
+                .register(meterRegistry);
+        this.replicas.forEach(replica -> Gauge.builder("datasource.replica.lag", replica, r -> r.lagMs)
+                .description("Replication lag of the replica in milliseconds, -1 if it is not reachable")
+                .tag("replica", replica.name)
+                .register(meterRegistry));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTarget().getConnection(username, password);
+    }
+
+    /**
+     * Routes the reads of the given user to the primary until the read-your-writes window passes
+     */
+    public void pin(long userId) {
+        pinnedUsers.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Runs the given read with the connections fetched meanwhile routed to the primary, for the reads whose
+     * results outlive the request, like cache loads. The read has to fetch its own connection, since a connection
+     * already bound to the current transaction is not routed again.
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        final Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null)
+                PRIMARY_ONLY.remove();
+        }
+    }
+
+    /**
+     * Measures the replication lag of every replica. A replica failing the check is not used until it passes.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.routing.lagCheckIntervalMs:1000}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            final long previous = replica.lagMs;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                replica.lagMs = resultSet.next() ? resultSet.getLong(1) : -1;
+            } catch (SQLException ex) {
+                replica.lagMs = -1;
+                if (previous != -1)
+                    log.warn(REPLICA_NOT_AVAILABLE, replica.name, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes the replica pools, the primary is closed by its owner
+     */
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+        }
+    }
+
+    DataSource determineTarget() {
+        if (replicas.isEmpty())
+            return primary;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinOnCommit();
+            return primary;
+        }
+        if (PRIMARY_ONLY.get() != null)
+            return primary;
+
+        final Long userId = currentUserId();
+        if (userId != null && pinnedUsers.getIfPresent(userId) != null) {
+            pinnedReads.increment();
+            return primary;
+        }
+        final Replica replica = selection == ReplicaSelection.LEAST_LOADED ? leastLoaded() : roundRobin();
+        if (replica == null) {
+            lagFallbacks.increment();
+            return primary;
+        }
+        return replica.dataSource;
+    }
+
+    private Replica roundRobin() {
+        final int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            final Replica replica = replicas.get((start + i) % replicas.size());
+            if (isUsable(replica))
+                return replica;
+        }
+        return null;
+    }
+
+    private Replica leastLoaded() {
+        Replica selected = null;
+        int selectedActive = Integer.MAX_VALUE;
+        for (Replica replica : replicas) {
+            if (!isUsable(replica))
+                continue;
+            final int active = replica.activeConnections.getAsInt();
+            if (active < selectedActive) {
+                selected = replica;
+                selectedActive = active;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isUsable(Replica replica) {
+        final long lag = replica.lagMs;
+        return lag >= 0 && lag <= maxLagMs;
+    }
+
+    /**
+     * Pins the current user when the current transaction, which may write, is about to commit. Statements run
+     * outside of a transaction are committed at once, so the user is pinned right away.
+     */
+    private void pinOnCommit() {
+        final Long userId = currentUserId();
+        if (userId == null)
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pin(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                pin(userId);
+            }
+        });
+    }
+
+    static Long currentUserId() {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl user
+                ? user.getId()
+                : null;
+    }
+}
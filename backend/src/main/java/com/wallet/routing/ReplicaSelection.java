@@ -0,0 +1,10 @@
+package com.wallet.routing;
+
+/**
+ * Strategy picking the replica of a read-only transaction
+ */
+public enum ReplicaSelection {
+
+    ROUND_ROBIN,
+    LEAST_LOADED
+}
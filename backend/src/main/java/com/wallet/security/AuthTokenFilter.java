@@ -1,11 +1,13 @@
 package com.wallet.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,14 +15,18 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.wallet.metrics.WalletMetrics;
+
 import static com.wallet.common.Constants.CANNOT_SET_AUTH;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Makes a single execution for each request to our API. It provides a doFilterInternal() method
- * that we will implement parsing & validating JWT, loading User details (using UserDetailsService),
- * checking Authorization (using UsernamePasswordAuthenticationToken).
+ * that we will implement parsing & validating JWT, building User details from the token claims,
+ * checking Authorization (using UsernamePasswordAuthenticationToken). User details are loaded
+ * (using UserDetailsService) only for tokens issued without the id claim or when revocation check is enabled.
  */
 @Slf4j(topic = "AuthTokenFilter")
 public class AuthTokenFilter extends OncePerRequestFilter {
@@ -31,15 +37,28 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private WalletMetrics walletMetrics;
+
+    @Value("${app.security.revocationCheck:false}")
+    private boolean revocationCheck;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
-        try {
-            String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                final String username = jwtUtils.getUsernameFromJwtToken(jwt);
+        final String jwt = parseJwt(request);
+        if (jwt != null)
+            walletMetrics.tokenAuthentication().record(() -> authenticate(jwt, request));
+        filterChain.doFilter(request, response);
+    }
 
-                final UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+    private void authenticate(String jwt, HttpServletRequest request) {
+        try {
+            final Optional<Claims> claims = jwtUtils.parseJwtToken(jwt);
+            if (claims.isPresent()) {
+                final UserDetails userDetails = revocationCheck || !claims.get().containsKey(JwtUtils.CLAIM_ID)
+                        ? userDetailsService.loadCachedUserByUsername(claims.get().getSubject())
+                        : UserDetailsImpl.build(claims.get());
                 final UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(
                                 userDetails,
@@ -52,7 +71,6 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         } catch (Exception e) {
             log.error(CANNOT_SET_AUTH, e);
         }
-        filterChain.doFilter(request, response);
     }
 
     private String parseJwt(HttpServletRequest request) {
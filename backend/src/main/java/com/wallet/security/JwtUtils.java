@@ -9,6 +9,8 @@ import org.springframework.stereotype.Component;
 import static com.wallet.common.Constants.*;
 
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Utility class for Jwt related tasks
@@ -17,6 +19,11 @@ import java.util.Date;
 @Component
 public class JwtUtils {
 
+    public static final String CLAIM_ID = "id";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_FIRST_NAME = "firstName";
+    public static final String CLAIM_LAST_NAME = "lastName";
+
     @Value("${app.security.jwtSecret}")
     private String jwtSecret;
 
@@ -25,22 +32,27 @@ public class JwtUtils {
 
     public String generateJwtToken(Authentication authentication) {
         final UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+        final List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(authority -> authority.getAuthority())
+                .toList();
         return Jwts.builder()
                 .setSubject((userPrincipal.getUsername()))
+                .claim(CLAIM_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+                .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
                 .signWith(SignatureAlgorithm.HS512, jwtSecret)
                 .compact();
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
-    }
-
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verifies the given token and returns its claims, or an empty result if the token is not valid
+     */
+    public Optional<Claims> parseJwtToken(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            return Optional.of(Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken).getBody());
         } catch (SignatureException e) {
             log.error(INVALID_JWT_SIGN, e.getMessage());
         } catch (MalformedJwtException e) {
@@ -52,6 +64,6 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             log.error(JWT_EMPTY, e.getMessage());
         }
-        return false;
+        return Optional.empty();
     }
 }
@@ -3,6 +3,8 @@ package com.wallet.security;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.wallet.model.User;
 
+import io.jsonwebtoken.Claims;
+
 import lombok.AllArgsConstructor;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -47,6 +49,24 @@ public class UserDetailsImpl implements UserDetails {
                 authorities);
     }
 
+    /**
+     * Builds the principal from verified token claims, without the password
+     */
+    public static UserDetailsImpl build(Claims claims) {
+        final List<?> roles = claims.get(JwtUtils.CLAIM_ROLES, List.class);
+        final List<SimpleGrantedAuthority> authorities = roles.stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .toList();
+
+        return new UserDetailsImpl(
+                ((Number) claims.get(JwtUtils.CLAIM_ID)).longValue(),
+                claims.getSubject(),
+                null,
+                claims.get(JwtUtils.CLAIM_FIRST_NAME, String.class),
+                claims.get(JwtUtils.CLAIM_LAST_NAME, String.class),
+                authorities);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -1,7 +1,9 @@
 package com.wallet.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -13,15 +15,26 @@ import com.wallet.repository.UserRepository;
 import static com.wallet.common.Constants.NOT_FOUND_USERNAME;
 
 import java.text.MessageFormat;
+import java.time.Duration;
 
 /**
  * Service used for UserDetails related operations
  */
 @Service
-@RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final Cache<String, UserDetails> principals;
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  @Value("${app.security.principalCacheSize:10000}") long cacheSize,
+                                  @Value("${app.security.principalCacheTtl:30s}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
 
     @Override
     @Transactional
@@ -30,4 +43,12 @@ public class UserDetailsServiceImpl implements UserDetailsService {
                 .orElseThrow(() -> new UsernameNotFoundException(MessageFormat.format(NOT_FOUND_USERNAME, username)));
         return UserDetailsImpl.build(user);
     }
+
+    /**
+     * Loads the user for request authentication. Results are kept for a short time, so deleted users and
+     * role changes take effect after at most the configured ttl. Not used for password authentication.
+     */
+    public UserDetails loadCachedUserByUsername(String username) throws UsernameNotFoundException {
+        return principals.get(username, this::loadUserByUsername);
+    }
 }
@@ -2,6 +2,7 @@ package com.wallet.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -14,10 +15,15 @@ import com.wallet.dto.request.SignupRequest;
 import com.wallet.dto.response.CommandResponse;
 import com.wallet.dto.response.JwtResponse;
 import com.wallet.exception.ElementAlreadyExistsException;
+import com.wallet.metrics.WalletMetrics;
 import com.wallet.model.User;
 import com.wallet.repository.UserRepository;
 import com.wallet.security.JwtUtils;
 import com.wallet.security.UserDetailsImpl;
+import com.wallet.stats.StatsService;
+import com.wallet.uniqueness.UniqueKey;
+import com.wallet.uniqueness.UniquenessIndex;
+import com.wallet.uniqueness.UserCreatedEvent;
 
 import static com.wallet.common.Constants.*;
 
@@ -35,11 +41,19 @@ public class AuthService {
     private final JwtUtils jwtUtils;
     private final UserRepository userRepository;
     private final SignupRequestMapper signupRequestMapper;
+    private final StatsService statsService;
+    private final WalletMetrics walletMetrics;
+    private final UniquenessIndex uniquenessIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Authenticates users by their credentials
      */
     public JwtResponse login(LoginRequest request) {
+        return walletMetrics.login().record(() -> authenticate(request));
+    }
+
+    private JwtResponse authenticate(LoginRequest request) {
         final Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername().trim(), request.getPassword().trim()));
 
@@ -66,13 +80,18 @@ public class AuthService {
      * Registers a user by provided credentials and user info
      */
     public CommandResponse signup(SignupRequest request) {
-        if (userRepository.existsByUsernameIgnoreCase(request.getUsername().trim()))
+        final String username = request.getUsername().trim();
+        if (uniquenessIndex.exists(UniqueKey.USERNAME, username,
+                () -> userRepository.existsByUsernameIgnoreCase(username)))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_USER_NAME);
-        if (userRepository.existsByEmailIgnoreCase(request.getEmail().trim()))
+        final String email = request.getEmail().trim();
+        if (uniquenessIndex.exists(UniqueKey.EMAIL, email, () -> userRepository.existsByEmailIgnoreCase(email)))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_USER_EMAIL);
 
         final User user = signupRequestMapper.toEntity(request);
         userRepository.save(user);
+        statsService.usersCreated(1);
+        eventPublisher.publishEvent(new UserCreatedEvent(user.getUsername(), user.getEmail()));
         log.info(CREATED_USER, new Object[]{user.getUsername()});
         return CommandResponse.builder().id(user.getId()).build();
     }
@@ -0,0 +1,171 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.wallet.dto.response.CommandResponse;
+import com.wallet.exception.ElementAlreadyExistsException;
+import com.wallet.repository.IdempotencyKeyJdbcRepository;
+
+import static com.wallet.common.Constants.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Service used for making money movement requests idempotent by a client provided key. Keys are scoped by the
+ * authenticated user, and the key row is written by the money movement in its own transaction, so a key is
+ * stored exactly when its request is committed. Completed keys are kept in a bounded in-memory cache in front of
+ * the idempotency_key table, so that retried requests are answered with the original response without touching
+ * the wallets. Concurrent duplicates within the instance wait for the result of the first request, while the
+ * duplicates on other instances fail on the primary key of the row and are rolled back.
+ */
+@Slf4j(topic = "IdempotencyService")
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository;
+    private final Clock clock;
+    private final Duration ttl;
+    private final Cache<String, Completed> completed;
+    private final Map<String, CompletableFuture<Completed>> inFlight = new ConcurrentHashMap<>();
+    // canonical form of the request bodies, independent of the field order of the classes
+    private final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    /**
+     * Outcome of a completed request stored by its key
+     */
+    private record Completed(String operation, String requestDigest, CommandResponse response) {
+    }
+
+    public IdempotencyService(IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository,
+                              Clock clock,
+                              @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${app.idempotency.cacheSize:10000}") long cacheSize) {
+        this.idempotencyKeyJdbcRepository = idempotencyKeyJdbcRepository;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs the given operation once per key of the user and returns the response of the first run for the
+     * repeated requests. The operation is given the claim it has to store in its transaction, or null when no key
+     * is given.
+     */
+    public CommandResponse execute(long userId, String key, String operation, Object request,
+                                   Function<IdempotencyKeyJdbcRepository.Claim, CommandResponse> action) {
+        if (!StringUtils.hasText(key))
+            return action.apply(null);
+
+        final String requestDigest = digest(request);
+        final String scopedKey = userId + ":" + key;
+        final Completed cached = completed.getIfPresent(scopedKey);
+        if (cached != null)
+            return verify(cached, operation, requestDigest);
+
+        final CompletableFuture<Completed> own = new CompletableFuture<>();
+        final CompletableFuture<Completed> running = inFlight.putIfAbsent(scopedKey, own);
+        if (running != null)
+            return verify(await(running), operation, requestDigest);
+
+        try {
+            final Optional<Completed> stored = find(userId, key);
+            final Completed result = stored.isPresent()
+                    ? stored.get()
+                    : run(new IdempotencyKeyJdbcRepository.Claim(userId, key, operation, requestDigest), action);
+            completed.put(scopedKey, result);
+            own.complete(result);
+            return stored.isPresent() ? verify(result, operation, requestDigest) : result.response();
+        } catch (RuntimeException ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(scopedKey, own);
+        }
+    }
+
+    /**
+     * Deletes the keys that are older than the configured time-to-live
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanupIntervalMs:3600000}")
+    public void deleteExpiredKeys() {
+        final int deleted = idempotencyKeyJdbcRepository.deleteAllCreatedBefore(Instant.now(clock).minus(ttl));
+        log.info(DELETED_IDEMPOTENCY_KEYS, deleted);
+    }
+
+    private Completed run(IdempotencyKeyJdbcRepository.Claim claim,
+                          Function<IdempotencyKeyJdbcRepository.Claim, CommandResponse> action) {
+        try {
+            return new Completed(claim.operation(), claim.requestDigest(), action.apply(claim));
+        } catch (DataIntegrityViolationException ex) {
+            // the key is committed by a concurrent request on another instance, this one is rolled back
+            final Completed stored = find(claim.userId(), claim.key()).orElseThrow(() -> ex);
+            verify(stored, claim.operation(), claim.requestDigest());
+            return stored;
+        }
+    }
+
+    private Optional<Completed> find(long userId, String key) {
+        return idempotencyKeyJdbcRepository.find(userId, key)
+                .map(stored -> new Completed(stored.operation(), stored.requestDigest(),
+                        CommandResponse.builder().id(stored.responseId()).build()));
+    }
+
+    private CommandResponse verify(Completed result, String operation, String requestDigest) {
+        if (!result.operation().equals(operation) || !result.requestDigest().equals(requestDigest))
+            throw new ElementAlreadyExistsException(IDEMPOTENCY_KEY_REUSED);
+        log.info(REPLAYED_IDEMPOTENT_REQUEST, operation, result.response().id());
+        return result.response();
+    }
+
+    /**
+     * SHA-256 digest of the canonical JSON form of the given request, hex encoded
+     */
+    private String digest(Object request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Completed await(CompletableFuture<Completed> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+}
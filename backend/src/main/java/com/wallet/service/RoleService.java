@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import com.wallet.cache.ReferenceDataRegistry;
 import com.wallet.model.Role;
 import com.wallet.model.RoleType;
 import com.wallet.repository.RoleRepository;
@@ -20,12 +21,13 @@ import java.util.Set;
 public class RoleService {
 
     private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     /**
      * Fetches list of role (entity) by the given role types
      */
     public List<Role> getReferenceByTypeIsIn(Set<RoleType> types) {
-        return roleRepository.getReferenceByTypeIsIn(types);
+        return referenceDataRegistry.getRoleReferences(types);
     }
 
     /**
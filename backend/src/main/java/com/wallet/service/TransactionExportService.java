@@ -0,0 +1,207 @@
+package com.wallet.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.wallet.model.ExportFormat;
+
+import static com.wallet.common.Constants.EXPORTED_TRANSACTIONS;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service used for exporting transactions. Rows are read through a forward-only cursor with the configured fetch
+ * size and written to the response as they arrive, so only a fetch size window of rows is held in memory.
+ */
+@Slf4j(topic = "TransactionExportService")
+@Service
+public class TransactionExportService {
+
+    private static final String SELECT = "SELECT t.id, t.amount, t.description, t.created_at, t.reference_number, " +
+            "t.status, fw.iban AS from_iban, tw.iban AS to_iban, ty.name AS type " +
+            "FROM transaction t " +
+            "JOIN wallet fw ON fw.id = t.from_wallet_id " +
+            "JOIN wallet tw ON tw.id = t.to_wallet_id " +
+            "JOIN type ty ON ty.id = t.type_id ";
+
+    private static final String EXPORT_ALL = SELECT + "ORDER BY t.id";
+
+    private static final String EXPORT_BY_USER_ID = SELECT +
+            "WHERE fw.user_id = ? OR tw.user_id = ? " +
+            "ORDER BY t.id";
+
+    private static final String[] COLUMNS = {"id", "amount", "description", "createdAt", "referenceNumber",
+            "status", "fromWalletIban", "toWalletIban", "type"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public TransactionExportService(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.export.fetchSize:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Streams the transactions of the given user (or all transactions when userId is null) in the given format
+     */
+    public StreamingResponseBody export(Long userId, ExportFormat format, boolean gzip) {
+        return outputStream -> {
+            final OutputStream target = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+            final RowWriter rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+            // the cursor is only used by the driver within a transaction, i.e. when auto-commit is off
+            final long count = transactionTemplate.execute(status -> {
+                final long[] rows = {0};
+                try {
+                    rowWriter.begin();
+                    if (userId == null)
+                        jdbcTemplate.query(EXPORT_ALL, rs -> {
+                            rowWriter.write(rs);
+                            rows[0]++;
+                        });
+                    else
+                        jdbcTemplate.query(EXPORT_BY_USER_ID, rs -> {
+                            rowWriter.write(rs);
+                            rows[0]++;
+                        }, userId, userId);
+                    rowWriter.end();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                return rows[0];
+            });
+            writer.flush();
+            if (target instanceof GZIPOutputStream gzipStream)
+                gzipStream.finish();
+            log.info(EXPORTED_TRANSACTIONS, count, format);
+        };
+    }
+
+    /**
+     * Writes the rows of the export query to the response
+     */
+    private interface RowWriter {
+
+        default void begin() throws IOException {
+        }
+
+        void write(ResultSet rs) throws SQLException;
+
+        default void end() throws IOException {
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(Writer writer) throws IOException {
+            this.generator = jsonFactory.createGenerator(writer);
+            this.generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField(COLUMNS[0], rs.getLong("id"));
+                generator.writeNumberField(COLUMNS[1], rs.getBigDecimal("amount"));
+                generator.writeStringField(COLUMNS[2], rs.getString("description"));
+                generator.writeStringField(COLUMNS[3], createdAt(rs));
+                generator.writeStringField(COLUMNS[4], rs.getString("reference_number"));
+                generator.writeStringField(COLUMNS[5], rs.getString("status"));
+                generator.writeStringField(COLUMNS[6], rs.getString("from_iban"));
+                generator.writeStringField(COLUMNS[7], rs.getString("to_iban"));
+                generator.writeStringField(COLUMNS[8], rs.getString("type"));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void end() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            writer.write(String.join(",", COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException {
+            try {
+                writer.write(Long.toString(rs.getLong("id")));
+                writer.write(',');
+                writer.write(rs.getBigDecimal("amount").toPlainString());
+                writer.write(',');
+                writeQuoted(rs.getString("description"));
+                writer.write(',');
+                writer.write(createdAt(rs));
+                writer.write(',');
+                writer.write(rs.getString("reference_number"));
+                writer.write(',');
+                writer.write(rs.getString("status"));
+                writer.write(',');
+                writeQuoted(rs.getString("from_iban"));
+                writer.write(',');
+                writeQuoted(rs.getString("to_iban"));
+                writer.write(',');
+                writeQuoted(rs.getString("type"));
+                writer.write("\r\n");
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void writeQuoted(String value) throws IOException {
+            if (value == null)
+                return;
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static String createdAt(ResultSet rs) throws SQLException {
+        return rs.getObject("created_at", LocalDateTime.class).toInstant(ZoneOffset.UTC).toString();
+    }
+}
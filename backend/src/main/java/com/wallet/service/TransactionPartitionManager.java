@@ -0,0 +1,128 @@
+package com.wallet.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static com.wallet.common.Constants.*;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of the transaction table (see V8 migration). Partitions for the configured
+ * number of months ahead are created at startup and daily, so that new rows never fall into the default
+ * partition. When a retention is configured, partitions older than the retention are detached; detached
+ * partitions remain as standalone tables named transaction_yyyy_mm until they are archived or dropped.
+ * Month boundaries are in UTC, like the stored created_at values.
+ */
+@Slf4j(topic = "TransactionPartitionManager")
+@Service
+public class TransactionPartitionManager {
+
+    private static final String PARTITION_PREFIX = "transaction_";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // serializes partition changes of the instances sharing the database
+    private static final String LOCK = "SELECT pg_advisory_xact_lock(hashtext('transaction_partitions'))";
+
+    private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'transaction'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       Clock clock,
+                                       @Value("${app.partition.monthsAhead:3}") int monthsAhead,
+                                       @Value("${app.partition.retentionMonths:0}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.partition.cron:0 0 1 * * *}", zone = "UTC")
+    public void maintain() {
+        final YearMonth current = YearMonth.from(LocalDate.now(clock.withZone(ZoneOffset.UTC)));
+        for (int i = 0; i <= monthsAhead; i++) {
+            createPartition(current.plusMonths(i));
+        }
+        if (retentionMonths > 0)
+            detachPartitionsBefore(current.minusMonths(retentionMonths));
+    }
+
+    /**
+     * Creates the partition of the given month unless it exists
+     */
+    public void createPartition(YearMonth month) {
+        final String name = partitionName(month);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(LOCK);
+                if (findPartitions().contains(name))
+                    return;
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE %s PARTITION OF transaction FOR VALUES FROM ('%s') TO ('%s')",
+                        name, month.atDay(1), month.plusMonths(1).atDay(1)));
+                log.info(CREATED_TRANSACTION_PARTITION, name);
+            });
+        } catch (DataAccessException ex) {
+            // e.g. the default partition already contains rows of this month
+            log.error(NOT_CREATED_TRANSACTION_PARTITION, name, ex.getMessage());
+        }
+    }
+
+    /**
+     * Detaches the partitions of the months before the given month
+     */
+    public void detachPartitionsBefore(YearMonth month) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute(LOCK);
+            for (String name : findPartitions()) {
+                final YearMonth partitionMonth = partitionMonth(name);
+                if (partitionMonth != null && partitionMonth.isBefore(month)) {
+                    jdbcTemplate.execute("ALTER TABLE transaction DETACH PARTITION " + name);
+                    log.info(DETACHED_TRANSACTION_PARTITION, name);
+                }
+            }
+        });
+    }
+
+    private List<String> findPartitions() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS, String.class);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    /**
+     * Returns the month of the given monthly partition, or null for other partitions (e.g. the default one)
+     */
+    static YearMonth partitionMonth(String name) {
+        try {
+            return YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+}
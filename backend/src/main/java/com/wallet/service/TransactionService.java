@@ -2,24 +2,43 @@ package com.wallet.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wallet.archive.ArchivedTransaction;
+import com.wallet.archive.TransactionArchive;
+import com.wallet.cache.ReferenceDataRegistry;
 import com.wallet.dto.mapper.TransactionRequestMapper;
 import com.wallet.dto.mapper.TransactionResponseMapper;
 import com.wallet.dto.request.TransactionRequest;
+import com.wallet.common.HistoryCursor;
 import com.wallet.dto.response.CommandResponse;
+import com.wallet.dto.response.CursorPage;
 import com.wallet.dto.response.TransactionResponse;
 import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.metrics.WalletMetrics;
 import com.wallet.model.Transaction;
+import com.wallet.model.Wallet;
 import com.wallet.repository.TransactionRepository;
+import com.wallet.repository.WalletRepository;
+import com.wallet.stats.StatsService;
+import com.wallet.stream.WalletActivityEvent;
 
 import static com.wallet.common.Constants.*;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service used for Transaction related operations
@@ -29,42 +48,119 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class TransactionService {
 
+    private static final Comparator<Transaction> HISTORY_ORDER = Comparator
+            .comparing(Transaction::getCreatedAt)
+            .thenComparing(Transaction::getId)
+            .reversed();
+
     private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionArchive transactionArchive;
+    private final ReferenceDataRegistry referenceDataRegistry;
     private final TransactionRequestMapper transactionRequestMapper;
     private final TransactionResponseMapper transactionResponseMapper;
+    private final WalletMetrics walletMetrics;
+    private final StatsService statsService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Fetches a single transaction by the given id
      */
     @Transactional(readOnly = true)
     public TransactionResponse findById(long id) {
-        return transactionRepository.findById(id)
+        return transactionRepository.findWithDetailsById(id)
                 .map(transactionResponseMapper::toDto)
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_TRANSACTION));
     }
 
     /**
-     * Fetches a single transaction by the given referenceNumber
+     * Fetches a single transaction by the given referenceNumber, from the archive if it is no longer in the database.
+     * Should the reference number ever be duplicated, the newest transaction is returned.
      */
     @Transactional(readOnly = true)
     public TransactionResponse findByReferenceNumber(UUID referenceNumber) {
-        return transactionRepository.findByReferenceNumber(referenceNumber)
+        return transactionRepository.findFirstWithDetailsByReferenceNumberOrderByCreatedAtDescIdDesc(referenceNumber)
+                .or(() -> transactionArchive.findByReferenceNumber(referenceNumber)
+                        .map(row -> fromArchive(List.of(row)).get(0)))
                 .map(transactionResponseMapper::toDto)
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_TRANSACTION));
     }
 
     /**
-     * Fetches all transaction by the given userId
+     * Fetches a page of transactions by the given userId, newest first, starting after the given cursor.
+     * The optional from (inclusive) and to (exclusive) bounds limit the history to the given time range.
+     * Archived transactions are read when the database does not have enough rows for the page, or when the
+     * archive has rows newer than the last row read from the database, which happens when older rows are
+     * inserted after an archival run.
      */
     @Transactional(readOnly = true)
-    public List<TransactionResponse> findAllByUserId(Long userId) {
-        final List<TransactionResponse> transactions = transactionRepository.findAllByUserId(userId).stream()
-                .map(transactionResponseMapper::toDto)
-                .toList();
+    public CursorPage<TransactionResponse> findAllByUserId(Long userId, Instant from, Instant to, String cursor, int size) {
+        final HistoryCursor after = cursor == null && to != null
+                ? new HistoryCursor(to, 0)
+                : HistoryCursor.decode(cursor);
+        final Instant lowerBound = from != null ? from : Instant.EPOCH;
+        final int limit = Math.max(1, Math.min(size, HISTORY_MAX_PAGE_SIZE));
+        final List<Long> ids = transactionRepository.findPageIdsByUserId(userId, lowerBound, after.createdAt(), after.id(), limit + 1);
 
-        if (transactions.isEmpty())
+        final Map<Long, Transaction> transactions = ids.isEmpty() ? Map.of()
+                : transactionRepository.findAllByIdIn(ids, lowerBound, after.createdAt()).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        final List<Transaction> rows = new ArrayList<>(ids.stream().map(transactions::get).toList());
+        if (!transactionArchive.isEmpty() && (rows.size() <= limit || isArchivedAfter(rows.get(rows.size() - 1)))) {
+            final List<ArchivedTransaction> archived = transactionArchive.findByWalletIds(
+                    walletRepository.findIdsByUserId(userId), lowerBound, after, limit + 1);
+            // rows of an interrupted archival run may be in both places
+            rows.addAll(fromArchive(archived.stream().filter(row -> !transactions.containsKey(row.id())).toList()));
+            rows.sort(HISTORY_ORDER);
+        }
+
+        if (rows.isEmpty() && cursor == null)
             throw new NoSuchElementFoundException(NOT_FOUND_RECORD);
-        return transactions;
+
+        final boolean hasNext = rows.size() > limit;
+        final List<Transaction> page = hasNext ? rows.subList(0, limit) : rows;
+        final Transaction last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPage.<TransactionResponse>builder()
+                .content(page.stream().map(transactionResponseMapper::toDto).toList())
+                .size(page.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? new HistoryCursor(last.getCreatedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    private boolean isArchivedAfter(Transaction transaction) {
+        final HistoryCursor position = new HistoryCursor(transaction.getCreatedAt(), transaction.getId());
+        return transactionArchive.findNewestPosition()
+                .filter(newest -> HistoryCursor.ORDER.compare(newest, position) > 0)
+                .isPresent();
+    }
+
+    /**
+     * Builds detached transactions of the given archived rows, fetching their wallets in a single query.
+     * Wallets deleted after archiving the rows are left empty.
+     */
+    private List<Transaction> fromArchive(List<ArchivedTransaction> rows) {
+        if (rows.isEmpty())
+            return List.of();
+        final Set<Long> walletIds = rows.stream()
+                .flatMap(row -> Stream.of(row.fromWalletId(), row.toWalletId()))
+                .collect(Collectors.toSet());
+        final Map<Long, Wallet> wallets = walletRepository.findAllWithUserByIdIn(walletIds).stream()
+                .collect(Collectors.toMap(Wallet::getId, Function.identity()));
+        return rows.stream().map(row -> {
+            final Transaction transaction = new Transaction();
+            transaction.setId(row.id());
+            transaction.setAmount(row.amount());
+            transaction.setDescription(row.description());
+            transaction.setCreatedAt(row.createdAt());
+            transaction.setReferenceNumber(row.referenceNumber());
+            transaction.setStatus(row.status());
+            transaction.setFromWallet(wallets.get(row.fromWalletId()));
+            transaction.setToWallet(wallets.get(row.toWalletId()));
+            transaction.setType(referenceDataRegistry.getTypeReference(row.typeId()));
+            return transaction;
+        }).toList();
     }
 
     /**
@@ -72,7 +168,7 @@ public class TransactionService {
      */
     @Transactional(readOnly = true)
     public Page<TransactionResponse> findAll(Pageable pageable) {
-        final Page<TransactionResponse> transactions = transactionRepository.findAll(pageable)
+        final Page<TransactionResponse> transactions = transactionRepository.findAllWithDetailsBy(pageable)
                 .map(transactionResponseMapper::toDto);
         if (transactions.isEmpty())
             throw new NoSuchElementFoundException(NOT_FOUND_RECORD);
@@ -80,12 +176,22 @@ public class TransactionService {
     }
 
     /**
-     * Creates a new transaction using the given request parameters
+     * Creates a new transaction using the given request parameters, and counts it in the same transaction
      */
+    @Transactional
     public CommandResponse create(TransactionRequest request) {
+        return walletMetrics.createTransaction().record(() -> createTransaction(request));
+    }
+
+    private CommandResponse createTransaction(TransactionRequest request) {
         final Transaction transaction = transactionRequestMapper.toEntity(request);
         transactionRepository.save(transaction);
-        log.info(CREATED_TRANSACTION, new Object[]{transaction.getFromWallet().getIban(), transaction.getToWallet().getIban(), transaction.getAmount()});
+        statsService.transactionsCreated(List.of(transaction), Transaction::getCreatedAt, Transaction::getAmount);
+        eventPublisher.publishEvent(WalletActivityEvent.of(new WalletActivityEvent.TransactionCreated(
+                transaction.getId(), transaction.getAmount(), transaction.getDescription(),
+                transaction.getCreatedAt(), transaction.getReferenceNumber(), transaction.getStatus(),
+                request.getFromWalletIban(), request.getToWalletIban(), request.getTypeId())));
+        log.info(CREATED_TRANSACTION, new Object[]{request.getFromWalletIban(), request.getToWalletIban(), transaction.getAmount()});
         return CommandResponse.builder().id(transaction.getId()).build();
     }
 }
@@ -0,0 +1,346 @@
+package com.wallet.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.dto.request.TransactionRequest;
+import com.wallet.dto.response.BatchTransferResponse;
+import com.wallet.dto.response.BatchTransferResult;
+import com.wallet.dto.response.CommandResponse;
+import com.wallet.exception.InsufficientFundsException;
+import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.cache.WalletCache;
+import com.wallet.hotwallet.HotWalletLedger;
+import com.wallet.idgen.ReferenceNumberGenerator;
+import com.wallet.metrics.WalletMetrics;
+import com.wallet.model.Status;
+import com.wallet.model.Wallet;
+import com.wallet.repository.IdempotencyKeyJdbcRepository;
+import com.wallet.repository.LedgerJdbcRepository;
+import com.wallet.repository.TransactionJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletRepository;
+import com.wallet.stats.StatsService;
+import com.wallet.stream.WalletActivityEvent;
+
+import static com.wallet.common.Constants.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Applies balance changes to wallets under row level locks. Wallet rows are always locked in ascending
+ * id order, so that concurrent transfers in opposite directions cannot deadlock each other, and the
+ * balance checks are made only after the locks are held. Operations failing with a serialization or
+ * deadlock error are retried in a new transaction up to the configured number of attempts.
+ * <p>
+ * Operations on wallets served by the {@link HotWalletLedger} are handed over to the ledger instead.
+ */
+@Slf4j(topic = "TransferEngine")
+@Service
+@RequiredArgsConstructor
+public class TransferEngine {
+
+    private final WalletRepository walletRepository;
+    private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+    private final HotWalletLedger hotWalletLedger;
+    private final WalletJdbcRepository walletJdbcRepository;
+    private final TransactionJdbcRepository transactionJdbcRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final IdempotencyKeyJdbcRepository idempotencyKeyJdbcRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final WalletMetrics walletMetrics;
+    private final WalletCache walletCache;
+    private final StatsService statsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceNumberGenerator referenceNumberGenerator;
+
+    @Value("${app.transfer.maxAttempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.transfer.retryBackoffMs:25}")
+    private long retryBackoffMs;
+
+    /**
+     * Transfers the requested amount from the sender wallet to the receiver wallet. The given idempotency key, if
+     * any, is stored in the transaction moving the money.
+     */
+    public CommandResponse transfer(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final long fromId = resolveId(request.getFromWalletIban());
+        final long toId = resolveId(request.getToWalletIban());
+        if (hotWalletLedger.accepts(request.getAmount(), fromId, toId))
+            return hotWalletLedger.transfer(fromId, toId, request, claim);
+
+        return executeWithRetry(() -> {
+            final Map<Long, Wallet> wallets = lockInOrder(fromId, toId);
+            final Wallet fromWallet = wallets.get(fromId);
+            final Wallet toWallet = wallets.get(toId);
+
+            // check if the balance of sender wallet has equal or higher to/than transfer amount
+            if (fromWallet.getBalance().compareTo(request.getAmount()) < 0)
+                throw new InsufficientFundsException(FUNDS_CANNOT_BELOW_ZERO);
+
+            fromWallet.setBalance(fromWallet.getBalance().subtract(request.getAmount()));
+            toWallet.setBalance(toWallet.getBalance().add(request.getAmount()));
+            log.info(UPDATED_WALLET_BALANCES, new Object[]{fromWallet.getBalance(), toWallet.getBalance()});
+
+            return post(transactionService.create(request), fromWallet, toWallet, request.getAmount(), claim);
+        }, () -> hotWalletLedger.transfer(fromId, toId, request, claim));
+    }
+
+    /**
+     * Adds the requested amount to the receiver wallet
+     */
+    public CommandResponse credit(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final long fromId = resolveId(request.getFromWalletIban());
+        final long toId = resolveId(request.getToWalletIban());
+        if (hotWalletLedger.accepts(request.getAmount(), toId))
+            return hotWalletLedger.credit(fromId, toId, request, claim);
+
+        return executeWithRetry(() -> {
+            final Wallet toWallet = lockInOrder(toId).get(toId);
+
+            toWallet.setBalance(toWallet.getBalance().add(request.getAmount()));
+            log.info(UPDATED_WALLET_BALANCE, new Object[]{toWallet.getBalance()});
+
+            return post(transactionService.create(request), null, toWallet, request.getAmount(), claim);
+        }, () -> hotWalletLedger.credit(fromId, toId, request, claim));
+    }
+
+    /**
+     * Withdraws the requested amount from the sender wallet
+     */
+    public CommandResponse debit(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final long fromId = resolveId(request.getFromWalletIban());
+        final long toId = resolveId(request.getToWalletIban());
+        if (hotWalletLedger.accepts(request.getAmount(), fromId))
+            return hotWalletLedger.debit(fromId, toId, request, claim);
+
+        return executeWithRetry(() -> {
+            final Wallet fromWallet = lockInOrder(fromId).get(fromId);
+            final BigDecimal amount = request.getAmount();
+
+            // check if the balance of sender wallet has equal or higher to/than transfer amount
+            if (fromWallet.getBalance().compareTo(amount) < 0)
+                throw new InsufficientFundsException(FUNDS_CANNOT_BELOW_ZERO);
+
+            fromWallet.setBalance(fromWallet.getBalance().subtract(amount));
+            log.info(UPDATED_WALLET_BALANCE, new Object[]{fromWallet.getBalance()});
+
+            return post(transactionService.create(request), fromWallet, null, amount, claim);
+        }, () -> hotWalletLedger.debit(fromId, toId, request, claim));
+    }
+
+    /**
+     * Settles the given transfers in a single database transaction. All the wallets in the batch are locked with
+     * one statement in ascending id order, every transfer is validated against the running balances, and the
+     * balances and transaction rows are written with JDBC batches. In atomic mode nothing is settled if any of
+     * the transfers is rejected.
+     */
+    public BatchTransferResponse transferBatch(List<TransactionRequest> requests, boolean atomic) {
+        return executeWithRetry(() -> settleBatch(requests, atomic), () -> {
+            // move the wallets served by the hot wallet ledger back to the database path and settle once more
+            requests.stream()
+                    .flatMap(request -> Stream.of(request.getFromWalletIban(), request.getToWalletIban()))
+                    .distinct()
+                    .forEach(iban -> walletRepository.findIdByIban(iban).ifPresent(hotWalletLedger::release));
+            return executeWithRetry(() -> settleBatch(requests, atomic), () -> {
+                throw new IllegalStateException(HOT_WALLET_NOT_ACKNOWLEDGED);
+            });
+        });
+    }
+
+    private BatchTransferResponse settleBatch(List<TransactionRequest> requests, boolean atomic) {
+        final Set<String> ibans = new HashSet<>();
+        requests.forEach(request -> {
+            ibans.add(request.getFromWalletIban());
+            ibans.add(request.getToWalletIban());
+        });
+        final Map<String, WalletJdbcRepository.Balance> wallets = new HashMap<>();
+        final List<WalletJdbcRepository.Balance> locked = walletMetrics.lockWait()
+                .record(() -> walletJdbcRepository.lockByIbans(ibans));
+        for (WalletJdbcRepository.Balance wallet : locked) {
+            if (hotWalletLedger.isResident(wallet.id()))
+                throw new ResidentWalletException();
+            wallets.put(wallet.iban(), wallet);
+        }
+        final Map<Long, BigDecimal> balances = new HashMap<>();
+        wallets.values().forEach(wallet -> balances.put(wallet.id(), wallet.balance()));
+        final String[] rejections = new String[requests.size()];
+        int failed = 0;
+
+        for (int i = 0; i < requests.size(); i++) {
+            final TransactionRequest request = requests.get(i);
+            final WalletJdbcRepository.Balance fromWallet = wallets.get(request.getFromWalletIban());
+            final WalletJdbcRepository.Balance toWallet = wallets.get(request.getToWalletIban());
+
+            if (fromWallet == null || toWallet == null)
+                rejections[i] = NOT_FOUND_WALLET;
+            else if (!referenceDataRegistry.hasType(request.getTypeId()))
+                rejections[i] = NOT_FOUND_TYPE;
+            else if (balances.get(fromWallet.id()).compareTo(request.getAmount()) < 0)
+                rejections[i] = FUNDS_CANNOT_BELOW_ZERO;
+            else {
+                balances.merge(fromWallet.id(), request.getAmount().negate(), BigDecimal::add);
+                balances.merge(toWallet.id(), request.getAmount(), BigDecimal::add);
+            }
+            if (rejections[i] != null)
+                failed++;
+        }
+
+        final List<BatchTransferResult> results = new ArrayList<>(requests.size());
+        if (atomic && failed > 0) {
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(rejections[i] != null
+                        ? BatchTransferResult.builder().index(i).status(Status.ERROR).message(rejections[i]).build()
+                        : BatchTransferResult.builder().index(i).status(Status.PENDING).message(NOT_SETTLED_ATOMIC_BATCH).build());
+            }
+            log.info(SETTLED_TRANSFER_BATCH, 0, requests.size());
+            return BatchTransferResponse.builder().succeeded(0).failed(requests.size()).results(results).build();
+        }
+
+        final List<Long> ids = transactionJdbcRepository.nextIds(requests.size() - failed);
+        final List<TransactionJdbcRepository.Row> rows = new ArrayList<>(ids.size());
+        final List<LedgerJdbcRepository.Posting> postings = new ArrayList<>(ids.size());
+        final List<WalletActivityEvent.TransactionCreated> created = new ArrayList<>(ids.size());
+        final Map<Long, BigDecimal> changed = new HashMap<>();
+        for (int i = 0, next = 0; i < requests.size(); i++) {
+            if (rejections[i] != null) {
+                results.add(BatchTransferResult.builder().index(i).status(Status.ERROR).message(rejections[i]).build());
+                continue;
+            }
+            final TransactionRequest request = requests.get(i);
+            final long fromId = wallets.get(request.getFromWalletIban()).id();
+            final long toId = wallets.get(request.getToWalletIban()).id();
+            final long id = ids.get(next++);
+            final TransactionJdbcRepository.Row row = new TransactionJdbcRepository.Row(id, request.getAmount(),
+                    request.getDescription(), request.getCreatedAt() != null ? request.getCreatedAt() : Instant.now(),
+                    referenceNumberGenerator.next(), Status.SUCCESS, fromId, toId, request.getTypeId());
+            rows.add(row);
+            postings.add(new LedgerJdbcRepository.Posting(id, fromId, toId, request.getAmount()));
+            created.add(new WalletActivityEvent.TransactionCreated(id, row.amount(), row.description(),
+                    row.createdAt(), row.referenceNumber(), row.status(), request.getFromWalletIban(),
+                    request.getToWalletIban(), request.getTypeId()));
+            changed.put(fromId, balances.get(fromId));
+            changed.put(toId, balances.get(toId));
+            results.add(BatchTransferResult.builder().index(i).id(id).status(Status.SUCCESS).build());
+        }
+        if (!rows.isEmpty()) {
+            walletJdbcRepository.updateBalances(changed);
+            transactionJdbcRepository.insertAll(rows);
+            ledgerJdbcRepository.post(postings, Instant.now());
+            statsService.transactionsCreated(rows, TransactionJdbcRepository.Row::createdAt,
+                    TransactionJdbcRepository.Row::amount);
+            eventPublisher.publishEvent(new WalletActivityEvent(created, wallets.values().stream()
+                    .filter(wallet -> changed.containsKey(wallet.id()))
+                    .map(wallet -> new WalletActivityEvent.BalanceChanged(wallet.id(), wallet.iban(),
+                            changed.get(wallet.id()).subtract(wallet.balance()), changed.get(wallet.id())))
+                    .toList()));
+        }
+        log.info(SETTLED_TRANSFER_BATCH, rows.size(), failed);
+        return BatchTransferResponse.builder().succeeded(rows.size()).failed(failed).results(results).build();
+    }
+
+    /**
+     * Books the created transaction in the ledger, a missing wallet standing for the external account, and
+     * publishes the changed balances
+     */
+    private CommandResponse post(CommandResponse transaction, Wallet debitWallet, Wallet creditWallet, BigDecimal amount,
+                                 IdempotencyKeyJdbcRepository.Claim claim) {
+        ledgerJdbcRepository.post(List.of(new LedgerJdbcRepository.Posting(transaction.id(),
+                debitWallet != null ? debitWallet.getId() : null,
+                creditWallet != null ? creditWallet.getId() : null, amount)), Instant.now());
+        // fails on a key committed by a concurrent request in the meantime, rolling this movement back
+        if (claim != null)
+            idempotencyKeyJdbcRepository.insertAll(
+                    List.of(new IdempotencyKeyJdbcRepository.Completion(claim, transaction.id())), Instant.now());
+
+        final List<WalletActivityEvent.BalanceChanged> balances = new ArrayList<>(2);
+        if (debitWallet != null)
+            balances.add(new WalletActivityEvent.BalanceChanged(debitWallet.getId(), debitWallet.getIban(),
+                    amount.negate(), debitWallet.getBalance()));
+        if (creditWallet != null)
+            balances.add(new WalletActivityEvent.BalanceChanged(creditWallet.getId(), creditWallet.getIban(),
+                    amount, creditWallet.getBalance()));
+        eventPublisher.publishEvent(WalletActivityEvent.of(balances));
+        return transaction;
+    }
+
+    /**
+     * Resolves the id of the wallet with the given iban without locking its row
+     */
+    private long resolveId(String iban) {
+        return walletCache.get(iban).id();
+    }
+
+    /**
+     * Locks the wallets with the given ids in ascending id order and returns them keyed by id. Fails if one of
+     * the wallets has been moved to the hot wallet ledger, which is checked only after the row is locked.
+     */
+    private Map<Long, Wallet> lockInOrder(long... ids) {
+        final Map<Long, Wallet> wallets = new HashMap<>();
+        final long start = System.nanoTime();
+        LongStream.of(ids).sorted().distinct().forEach(id -> {
+            wallets.put(id, walletRepository.findByIdForUpdate(id)
+                    .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET)));
+            if (hotWalletLedger.isResident(id))
+                throw new ResidentWalletException();
+        });
+        walletMetrics.lockWait().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return wallets;
+    }
+
+    /**
+     * Runs the given operation in a new transaction and retries it when it fails due to lock contention. The
+     * fallback is used when one of the wallets turns out to be served by the hot wallet ledger.
+     */
+    private <T> T executeWithRetry(Supplier<T> operation, Supplier<T> fallback) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (ResidentWalletException ex) {
+                return fallback.get();
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts)
+                    throw ex;
+                walletMetrics.retries().increment();
+                log.warn(RETRYING_WALLET_OPERATION, attempt, maxAttempts, ex.getMessage());
+                backoff(attempt, ex);
+            }
+        }
+    }
+
+    private static final class ResidentWalletException extends RuntimeException {
+
+        private ResidentWalletException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private void backoff(int attempt, ConcurrencyFailureException cause) {
+        try {
+            Thread.sleep(retryBackoffMs * attempt + ThreadLocalRandom.current().nextLong(retryBackoffMs + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -4,8 +4,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import com.wallet.cache.ReferenceDataRegistry;
 import com.wallet.model.Type;
-import com.wallet.repository.TypeRepository;
 
 /**
  * Service used for Type related operations
@@ -15,12 +15,12 @@ import com.wallet.repository.TypeRepository;
 @RequiredArgsConstructor
 public class TypeService {
 
-    private final TypeRepository typeRepository;
+    private final ReferenceDataRegistry referenceDataRegistry;
 
     /**
      * Fetches a single type reference (entity) by the given id
      */
     public Type getReferenceById(long id) {
-        return typeRepository.getReferenceById(id);
+        return referenceDataRegistry.getTypeReference(id);
     }
 }
@@ -2,27 +2,42 @@ package com.wallet.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.wallet.cache.WalletChangedEvent;
 import com.wallet.dto.mapper.WalletRequestMapper;
 import com.wallet.dto.mapper.WalletResponseMapper;
 import com.wallet.dto.mapper.WalletTransactionRequestMapper;
+import com.wallet.dto.request.BatchTransferRequest;
 import com.wallet.dto.request.TransactionRequest;
 import com.wallet.dto.request.WalletRequest;
+import com.wallet.dto.response.BalanceResponse;
+import com.wallet.dto.response.BatchTransferResponse;
 import com.wallet.dto.response.CommandResponse;
 import com.wallet.dto.response.WalletResponse;
 import com.wallet.exception.ElementAlreadyExistsException;
-import com.wallet.exception.InsufficientFundsException;
 import com.wallet.exception.NoSuchElementFoundException;
+import com.wallet.hotwallet.HotWalletLedger;
+import com.wallet.metrics.WalletMetrics;
 import com.wallet.model.Wallet;
+import com.wallet.ledger.LedgerService;
+import com.wallet.repository.IdempotencyKeyJdbcRepository;
+import com.wallet.repository.LedgerJdbcRepository;
 import com.wallet.repository.WalletRepository;
-import com.wallet.validator.IbanValidator;
+import com.wallet.stats.StatsService;
+import com.wallet.stream.WalletActivityEvent;
+import com.wallet.uniqueness.UniqueKey;
+import com.wallet.uniqueness.UniquenessIndex;
 
 import static com.wallet.common.Constants.*;
 
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -35,17 +50,25 @@ public class WalletService {
 
     private final WalletRepository walletRepository;
     private final TransactionService transactionService;
+    private final TransferEngine transferEngine;
+    private final HotWalletLedger hotWalletLedger;
     private final WalletRequestMapper walletRequestMapper;
     private final WalletResponseMapper walletResponseMapper;
     private final WalletTransactionRequestMapper walletTransactionRequestMapper;
-    private final IbanValidator ibanValidator;
+    private final WalletMetrics walletMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final LedgerService ledgerService;
+    private final StatsService statsService;
+    private final UniquenessIndex uniquenessIndex;
+    private final Clock clock;
 
     /**
      * Fetches a single wallet by the given id
      */
     @Transactional(readOnly = true)
     public WalletResponse findById(long id) {
-        return walletRepository.findById(id)
+        return walletRepository.findWithUserById(id)
                 .map(walletResponseMapper::toDto)
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET));
     }
@@ -55,7 +78,7 @@ public class WalletService {
      */
     @Transactional(readOnly = true)
     public WalletResponse findByIban(String iban) {
-        return walletRepository.findByIban(iban)
+        return walletRepository.findWithUserByIban(iban)
                 .map(walletResponseMapper::toDto)
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET));
     }
@@ -65,11 +88,22 @@ public class WalletService {
      */
     @Transactional(readOnly = true)
     public List<WalletResponse> findByUserId(long userId) {
-        return walletRepository.findByUserId(userId).stream()
+        return walletRepository.findWithUserByUserId(userId).stream()
                 .map(walletResponseMapper::toDto)
                 .toList();
     }
 
+    /**
+     * Fetches the balance of the given wallet at the given time, calculated from the ledger
+     */
+    @Transactional(readOnly = true)
+    public BalanceResponse findBalanceAt(long id, Instant at) {
+        if (!walletRepository.existsById(id))
+            throw new NoSuchElementFoundException(NOT_FOUND_WALLET);
+        final Instant time = at != null ? at : Instant.now(clock);
+        return BalanceResponse.builder().walletId(id).balance(ledgerService.balanceAt(id, time)).at(time).build();
+    }
+
     /**
      * Fetches a single wallet reference (entity) by the given id
      */
@@ -83,7 +117,7 @@ public class WalletService {
      */
     @Transactional(readOnly = true)
     public Page<WalletResponse> findAll(Pageable pageable) {
-        final Page<WalletResponse> wallets = walletRepository.findAll(pageable)
+        final Page<WalletResponse> wallets = walletRepository.findAllWithUserBy(pageable)
                 .map(walletResponseMapper::toDto);
         if (wallets.isEmpty())
             throw new NoSuchElementFoundException(NOT_FOUND_RECORD);
@@ -95,19 +129,29 @@ public class WalletService {
      */
     @Transactional
     public CommandResponse create(WalletRequest request) {
-        if (walletRepository.existsByIbanIgnoreCase(request.getIban()))
+        return walletMetrics.createWallet().record(() -> createWallet(request));
+    }
+
+    private CommandResponse createWallet(WalletRequest request) {
+        if (uniquenessIndex.exists(UniqueKey.IBAN, request.getIban(),
+                () -> walletRepository.existsByIbanIgnoreCase(request.getIban())))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_WALLET_IBAN);
         if (walletRepository.existsByUserIdAndNameIgnoreCase(request.getUserId(), request.getName()))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_WALLET_NAME);
 
-        ibanValidator.isValid(request.getIban(), null);
-
+        // the wallet row is written at once, since the ledger entries reference it
         final Wallet wallet = walletRequestMapper.toEntity(request);
-        walletRepository.save(wallet);
+        walletRepository.saveAndFlush(wallet);
+        statsService.walletsChanged(1);
+        eventPublisher.publishEvent(new WalletChangedEvent(List.of(wallet.getIban())));
         log.info(CREATED_WALLET, new Object[]{wallet.getIban(), wallet.getName(), wallet.getBalance()});
 
-        // add this initial amount to the transactions
-        transactionService.create(walletTransactionRequestMapper.toTransactionDto(request));
+        // add this initial amount to the transactions and book it from the external account
+        final CommandResponse transaction = transactionService.create(walletTransactionRequestMapper.toTransactionDto(request));
+        ledgerJdbcRepository.post(List.of(new LedgerJdbcRepository.Posting(transaction.id(), null, wallet.getId(),
+                wallet.getBalance())), Instant.now(clock));
+        eventPublisher.publishEvent(WalletActivityEvent.of(List.of(new WalletActivityEvent.BalanceChanged(
+                wallet.getId(), wallet.getIban(), wallet.getBalance(), wallet.getBalance()))));
 
         return CommandResponse.builder().id(wallet.getId()).build();
     }
@@ -118,76 +162,56 @@ public class WalletService {
      * @param request
      * @return id of the transaction
      */
-    @Transactional
     public CommandResponse transferFunds(TransactionRequest request) {
-        final Wallet toWallet = getByIban(request.getToWalletIban());
-        final Wallet fromWallet = getByIban(request.getFromWalletIban());
-
-        // check if the balance of sender wallet has equal or higher to/than transfer amount
-        if (fromWallet.getBalance().compareTo(request.getAmount()) < 0)
-            throw new InsufficientFundsException(FUNDS_CANNOT_BELOW_ZERO);
-
-        // update balance of the sender wallet
-        fromWallet.setBalance(fromWallet.getBalance().subtract(request.getAmount()));
-
-        // update balance of the receiver wallet
-        toWallet.setBalance(toWallet.getBalance().add(request.getAmount()));
-
-        walletRepository.save(toWallet);
-        log.info(UPDATED_WALLET_BALANCES, new Object[]{fromWallet.getBalance(), toWallet.getBalance()});
+        return transferFunds(request, null);
+    }
 
-        final CommandResponse response = transactionService.create(request);
+    /**
+     * Transfer funds between wallets, storing the given idempotency key in the same transaction
+     */
+    public CommandResponse transferFunds(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final CommandResponse response = walletMetrics.transfer().record(() -> transferEngine.transfer(request, claim));
         return CommandResponse.builder().id(response.id()).build();
     }
 
     /**
-     * Adds funds to the given wallet
+     * Adds funds to the given wallet, storing the given idempotency key (if any) in the same transaction
      */
-    @Transactional
-    public CommandResponse addFunds(TransactionRequest request) {
-        final Wallet toWallet = getByIban(request.getToWalletIban());
-
-        // update balance of the receiver wallet
-        toWallet.setBalance(toWallet.getBalance().add(request.getAmount()));
-
-        walletRepository.save(toWallet);
-        log.info(UPDATED_WALLET_BALANCE, new Object[]{toWallet.getBalance()});
-
-        final CommandResponse response = transactionService.create(request);
+    public CommandResponse addFunds(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final CommandResponse response = walletMetrics.addFunds().record(() -> transferEngine.credit(request, claim));
         return CommandResponse.builder().id(response.id()).build();
     }
 
     /**
-     * Withdraw funds from the given wallet
+     * Withdraw funds from the given wallet, storing the given idempotency key (if any) in the same transaction
      */
-    @Transactional
-    public CommandResponse withdrawFunds(TransactionRequest request) {
-        final Wallet fromWallet = getByIban(request.getFromWalletIban());
-
-        // check if the balance of sender wallet has equal or higher to/than transfer amount
-        if (fromWallet.getBalance().compareTo(request.getAmount()) < 0)
-            throw new InsufficientFundsException(FUNDS_CANNOT_BELOW_ZERO);
-
-        // update balance of the sender wallet
-        fromWallet.setBalance(fromWallet.getBalance().subtract(request.getAmount()));
-
-        walletRepository.save(fromWallet);
-        log.info(UPDATED_WALLET_BALANCE, new Object[]{fromWallet.getBalance()});
-
-        final CommandResponse response = transactionService.create(request);
+    public CommandResponse withdrawFunds(TransactionRequest request, IdempotencyKeyJdbcRepository.Claim claim) {
+        final CommandResponse response = walletMetrics.withdrawFunds().record(() -> transferEngine.debit(request, claim));
         return CommandResponse.builder().id(response.id()).build();
     }
 
+    /**
+     * Transfer funds between wallets for each of the given transfers in a single batch
+     */
+    public BatchTransferResponse transferFundsInBatch(BatchTransferRequest request) {
+        return walletMetrics.transferBatch().record(() ->
+                transferEngine.transferBatch(request.getTransfers(), request.isAtomic()));
+    }
+
     /**
      * Updates wallet using the given request parameters
      */
+    @Transactional
     public CommandResponse update(WalletRequest request) {
-        final Wallet foundWallet = walletRepository.findById(request.getId())
+        // the row is locked, so that the balance change is booked against the balance it replaces
+        hotWalletLedger.release(request.getId());
+        final Wallet foundWallet = walletRepository.findByIdForUpdate(request.getId())
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET));
 
         // check if the iban is changed and new iban is already exists
         if (!request.getIban().equalsIgnoreCase(foundWallet.getIban()) &&
-                walletRepository.existsByIbanIgnoreCase(request.getIban()))
+                uniquenessIndex.exists(UniqueKey.IBAN, request.getIban(),
+                        () -> walletRepository.existsByIbanIgnoreCase(request.getIban())))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_WALLET_IBAN);
 
         // check if the name is changed and new name is already exists in user's wallets
@@ -195,10 +219,18 @@ public class WalletService {
                 walletRepository.existsByUserIdAndNameIgnoreCase(request.getUserId(), request.getName()))
             throw new ElementAlreadyExistsException(ALREADY_EXISTS_WALLET_NAME);
 
-        ibanValidator.isValid(request.getIban(), null);
-
+        // saving merges the request into the found wallet, so its iban is kept before
+        final String previousIban = foundWallet.getIban();
+        final BigDecimal previousBalance = foundWallet.getBalance();
         final Wallet wallet = walletRequestMapper.toEntity(request);
         walletRepository.save(wallet);
+        final BigDecimal adjustment = wallet.getBalance().subtract(previousBalance);
+        ledgerJdbcRepository.post(List.of(new LedgerJdbcRepository.Posting(null, null, wallet.getId(), adjustment)),
+                Instant.now(clock));
+        if (adjustment.signum() != 0)
+            eventPublisher.publishEvent(WalletActivityEvent.of(List.of(new WalletActivityEvent.BalanceChanged(
+                    wallet.getId(), wallet.getIban(), adjustment, wallet.getBalance()))));
+        eventPublisher.publishEvent(new WalletChangedEvent(List.of(previousIban, wallet.getIban())));
         log.info(UPDATED_WALLET, new Object[]{wallet.getIban(), wallet.getName(), wallet.getBalance()});
         return CommandResponse.builder().id(wallet.getId()).build();
     }
@@ -206,10 +238,14 @@ public class WalletService {
     /**
      * Deletes wallet by the given id
      */
+    @Transactional
     public void deleteById(long id) {
+        hotWalletLedger.release(id);
         final Wallet wallet = walletRepository.findById(id)
                 .orElseThrow(() -> new NoSuchElementFoundException(NOT_FOUND_WALLET));
         walletRepository.delete(wallet);
+        statsService.walletsChanged(-1);
+        eventPublisher.publishEvent(new WalletChangedEvent(List.of(wallet.getIban())));
         log.info(DELETED_WALLET, new Object[]{wallet.getIban(), wallet.getName(), wallet.getBalance()});
     }
 }
@@ -0,0 +1,218 @@
+package com.wallet.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.dto.response.StatsResponse;
+
+import static com.wallet.common.Constants.*;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Serves the dashboard statistics from counters that the writing transactions update along with the counted rows,
+ * so the statistics are exact as soon as the writes commit, on every instance. Counters are split into slots (see
+ * V15 migration), so the statistics are read by summing up a few rows. The rollups of the current and the
+ * previous month and the row counts are recounted by a rare catch-up job, which corrects the counters if a
+ * write ever bypassed them without blocking the writers.
+ */
+@Slf4j(topic = "StatsService")
+@Service
+public class StatsService {
+
+    private static final String WALLETS = "wallets";
+    private static final String USERS = "users";
+
+    private static final String ADD_TO_ROLLUP = "INSERT INTO transaction_rollup " +
+            "(month, slot, transaction_count, amount, refreshed_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (month, slot) DO UPDATE SET " +
+            "transaction_count = transaction_rollup.transaction_count + excluded.transaction_count, " +
+            "amount = transaction_rollup.amount + excluded.amount, refreshed_at = excluded.refreshed_at";
+
+    private static final String ADD_TO_COUNTER = "INSERT INTO stats_counter (name, slot, value) VALUES (?, ?, ?) " +
+            "ON CONFLICT (name, slot) DO UPDATE SET value = stats_counter.value + excluded.value";
+
+    private static final String RECOUNT_ROLLUP = "SELECT count(*), coalesce(sum(amount), 0) FROM transaction " +
+            "WHERE created_at >= ? AND created_at < ?";
+
+    private static final String SELECT_ROLLUP = "SELECT coalesce(sum(transaction_count), 0), " +
+            "coalesce(sum(amount), 0) FROM transaction_rollup WHERE month = ?";
+
+    private static final String RECOUNT_COUNTERS = "SELECT " +
+            "(SELECT count(*) FROM wallet) - (SELECT coalesce(sum(value), 0) FROM stats_counter " +
+            "WHERE name = '" + WALLETS + "') AS wallets, " +
+            "(SELECT count(*) FROM public.\"user\") - (SELECT coalesce(sum(value), 0) FROM stats_counter " +
+            "WHERE name = '" + USERS + "') AS users";
+
+    private static final String SELECT_TOTALS = "SELECT " +
+            "(SELECT coalesce(sum(value), 0) FROM stats_counter WHERE name = '" + WALLETS + "') AS wallets, " +
+            "(SELECT coalesce(sum(value), 0) FROM stats_counter WHERE name = '" + USERS + "') AS users, " +
+            "(SELECT coalesce(sum(amount), 0) FROM transaction_rollup) AS amount, " +
+            "(SELECT coalesce(sum(transaction_count), 0) FROM transaction_rollup WHERE month = ?) AS monthly_count, " +
+            "(SELECT coalesce(sum(amount), 0) FROM transaction_rollup WHERE month = ?) AS monthly_amount";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Clock clock;
+    private final int slots;
+
+    /**
+     * Number and total amount of the transactions created in a month
+     */
+    private record Rollup(long count, BigDecimal amount) {
+
+        private Rollup add(Rollup other) {
+            return new Rollup(count + other.count, amount.add(other.amount));
+        }
+
+        private Rollup subtract(Rollup other) {
+            return new Rollup(count - other.count, amount.subtract(other.amount));
+        }
+
+        private boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+    }
+
+    public StatsService(JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        Clock clock,
+                        @Value("${app.stats.slots:16}") int slots) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // not read-only, so the recount is read from the primary the corrections are written to
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.clock = clock;
+        this.slots = slots;
+    }
+
+    /**
+     * Fetches the statistics by summing up the slots of the counters
+     */
+    @Transactional(readOnly = true)
+    public StatsResponse getStats() {
+        final Instant now = Instant.now(clock);
+        final LocalDate monthStart = YearMonth.from(LocalDate.ofInstant(now, ZoneOffset.UTC)).atDay(1);
+        final Map<String, Object> row = jdbcTemplate.queryForMap(SELECT_TOTALS, monthStart, monthStart);
+        return StatsResponse.builder()
+                .wallets(((Number) row.get("wallets")).longValue())
+                .users(((Number) row.get("users")).longValue())
+                .transactionAmount((BigDecimal) row.get("amount"))
+                .monthlyTransactions(((Number) row.get("monthly_count")).longValue())
+                .monthlyTransactionAmount((BigDecimal) row.get("monthly_amount"))
+                .refreshedAt(now)
+                .build();
+    }
+
+    /**
+     * Recounts the rollups of the current and the previous month and the row counts, and adds the differences to
+     * the counters. The rows and the counters are read in a single repeatable read snapshot without locking
+     * them, and the writers change both in the same transaction, so the differences are exact as of the snapshot
+     * while the writers carry on. The differences are then added to the counters in a short transaction, like the
+     * changes of any other writer.
+     */
+    @Scheduled(cron = "${app.stats.catchUpCron:0 30 3 * * *}", zone = "UTC")
+    public void catchUp() {
+        final long start = System.currentTimeMillis();
+        final Instant now = Instant.now(clock);
+        final YearMonth month = YearMonth.from(LocalDate.ofInstant(now, ZoneOffset.UTC));
+        final Map<YearMonth, Rollup> rollupCorrections = new TreeMap<>();
+        final Map<String, Object> counterCorrections = snapshotTemplate.execute(status -> {
+            for (YearMonth recounted : List.of(month.minusMonths(1), month)) {
+                rollupCorrections.put(recounted, recountRollup(recounted));
+            }
+            return jdbcTemplate.queryForMap(RECOUNT_COUNTERS);
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            final Timestamp refreshedAt = toTimestamp(now);
+            rollupCorrections.forEach((recounted, correction) -> {
+                if (!correction.isZero())
+                    jdbcTemplate.update(ADD_TO_ROLLUP, recounted.atDay(1), slot(), correction.count(),
+                            correction.amount(), refreshedAt);
+            });
+            for (String name : List.of(WALLETS, USERS)) {
+                final long correction = ((Number) counterCorrections.get(name)).longValue();
+                if (correction != 0)
+                    jdbcTemplate.update(ADD_TO_COUNTER, name, slot(), correction);
+            }
+        });
+        log.info(CAUGHT_UP_STATS, month.minusMonths(1), month, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Counts the given number of created (or, when negative, deleted) wallets in the current transaction
+     */
+    public void walletsChanged(long count) {
+        jdbcTemplate.update(ADD_TO_COUNTER, WALLETS, slot(), count);
+    }
+
+    /**
+     * Counts the given number of created users in the current transaction
+     */
+    public void usersCreated(long count) {
+        jdbcTemplate.update(ADD_TO_COUNTER, USERS, slot(), count);
+    }
+
+    /**
+     * Adds the given created transactions to the rollups of their months in the current transaction. The months
+     * are updated in ascending order, so concurrent writers lock the rows of a slot in the same order.
+     */
+    public <T> void transactionsCreated(Collection<T> transactions, Function<T, Instant> createdAt,
+                                       Function<T, BigDecimal> amount) {
+        if (transactions.isEmpty())
+            return;
+        final Map<YearMonth, Rollup> months = new TreeMap<>();
+        for (T transaction : transactions) {
+            months.merge(YearMonth.from(LocalDate.ofInstant(createdAt.apply(transaction), ZoneOffset.UTC)),
+                    new Rollup(1, amount.apply(transaction)), Rollup::add);
+        }
+        final int slot = slot();
+        final Timestamp now = toTimestamp(Instant.now(clock));
+        months.forEach((month, rollup) ->
+                jdbcTemplate.update(ADD_TO_ROLLUP, month.atDay(1), slot, rollup.count(), rollup.amount(), now));
+    }
+
+    /**
+     * Difference between the transactions created in the given month and their rollup
+     */
+    private Rollup recountRollup(YearMonth month) {
+        final Rollup counted = jdbcTemplate.queryForObject(RECOUNT_ROLLUP,
+                (rs, rowNum) -> new Rollup(rs.getLong(1), rs.getBigDecimal(2)),
+                Timestamp.valueOf(month.atDay(1).atStartOfDay()),
+                Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()));
+        final Rollup rolledUp = jdbcTemplate.queryForObject(SELECT_ROLLUP,
+                (rs, rowNum) -> new Rollup(rs.getLong(1), rs.getBigDecimal(2)), month.atDay(1));
+        return counted.subtract(rolledUp);
+    }
+
+    private int slot() {
+        return ThreadLocalRandom.current().nextInt(slots);
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,37 @@
+package com.wallet.stream;
+
+import com.wallet.model.Status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published by the money movement paths with the created transactions and the changed wallet balances. It is
+ * streamed to the owners of the wallets once the publishing transaction commits.
+ */
+public record WalletActivityEvent(List<TransactionCreated> transactions, List<BalanceChanged> balances) {
+
+    /**
+     * Created transaction, referencing its wallets by iban
+     */
+    public record TransactionCreated(long id, BigDecimal amount, String description, Instant createdAt,
+                                     UUID referenceNumber, Status status, String fromWalletIban,
+                                     String toWalletIban, Long typeId) {
+    }
+
+    /**
+     * Balance change of a wallet. The resulting balance is missing when the change is applied as a delta.
+     */
+    public record BalanceChanged(long walletId, String iban, BigDecimal delta, BigDecimal balance) {
+    }
+
+    public static WalletActivityEvent of(TransactionCreated transaction) {
+        return new WalletActivityEvent(List.of(transaction), List.of());
+    }
+
+    public static WalletActivityEvent of(List<BalanceChanged> balances) {
+        return new WalletActivityEvent(List.of(), balances);
+    }
+}
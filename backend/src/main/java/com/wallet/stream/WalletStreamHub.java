@@ -0,0 +1,340 @@
+package com.wallet.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.cache.WalletCache;
+import com.wallet.cache.WalletRef;
+import com.wallet.dto.response.BalanceUpdateResponse;
+import com.wallet.dto.response.TransactionResponse;
+import com.wallet.dto.response.UserResponse;
+import com.wallet.dto.response.WalletResponse;
+import com.wallet.exception.NoSuchElementFoundException;
+
+import static com.wallet.common.Constants.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the balance changes and the created transactions of their wallets to the subscribed users as
+ * Server-Sent Events. Activities are fanned out after the publishing transaction commits, by queueing them to
+ * a bounded buffer per subscriber, which is drained by a small pool of sender threads. Committing threads never
+ * wait for a client: a subscriber whose buffer is full is considered too slow and its stream is closed, so the
+ * client has to reconnect and refetch.
+ * <p>
+ * Sends block while the socket buffer of the client is full, so a send running longer than the send timeout
+ * drops its subscriber as well. The blocked sender thread is only released by the write timeout of the
+ * container, so the pool gets an extra thread for each blocked one meanwhile, and the other subscribers keep
+ * being served.
+ */
+@Slf4j(topic = "WalletStreamHub")
+@Component
+public class WalletStreamHub {
+
+    public static final String BALANCE_EVENT = "balance";
+    public static final String TRANSACTION_EVENT = "transaction";
+
+    private final WalletCache walletCache;
+    private final ReferenceDataRegistry referenceDataRegistry;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final ThreadPoolExecutor sender;
+    private final AtomicInteger blockedSenders = new AtomicInteger();
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount;
+    private final Counter dropped;
+
+    /**
+     * Event waiting to be sent, or a heartbeat comment when it has no name
+     */
+    private record Message(String name, Object data) {
+    }
+
+    // send state of a subscriber, next to the start time of its running send
+    private static final long IDLE = 0;
+    private static final long BLOCKED = Long.MIN_VALUE;
+
+    /**
+     * Stream of a user. The send state is the start time of the running send, which the watchdog replaces with
+     * the blocked state when the send exceeds the send timeout.
+     */
+    private record Subscriber(long userId, SseEmitter emitter, BlockingQueue<Message> queue,
+                              AtomicBoolean draining, AtomicBoolean closed, AtomicLong sendState) {
+    }
+
+    public WalletStreamHub(WalletCache walletCache,
+                           ReferenceDataRegistry referenceDataRegistry,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.stream.bufferSize:256}") int bufferSize,
+                           @Value("${app.stream.timeout:30m}") Duration timeout,
+                           @Value("${app.stream.sendTimeout:5s}") Duration sendTimeout,
+                           @Value("${app.stream.senderThreads:2}") int senderThreads) {
+        this.walletCache = walletCache;
+        this.referenceDataRegistry = referenceDataRegistry;
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.senderThreads = senderThreads;
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>());
+        this.subscriberCount = meterRegistry.gauge("wallet.stream.subscribers", new AtomicInteger());
+        this.dropped = Counter.builder("wallet.stream.dropped")
+                .description("Wallet streams closed since their subscribers could not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the activities on the wallets of the given user
+     */
+    public SseEmitter subscribe(long userId) {
+        final SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        final Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(bufferSize),
+                new AtomicBoolean(), new AtomicBoolean(), new AtomicLong(IDLE));
+        subscribers.compute(userId, (key, current) -> {
+            final Set<Subscriber> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(ex -> remove(subscriber));
+        // send a comment at once, so the response is committed before the first activity
+        offer(subscriber, new Message(null, null));
+        return emitter;
+    }
+
+    /**
+     * Queues the activities to the subscribed owners of the wallets once the transaction is committed. Failures
+     * are only logged, since the changes are already committed at this point.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onActivity(WalletActivityEvent event) {
+        if (subscribers.isEmpty())
+            return;
+        try {
+            event.transactions().forEach(this::publish);
+            event.balances().forEach(this::publish);
+        } catch (RuntimeException ex) {
+            log.error(NOT_STREAMED_WALLET_ACTIVITY, ex.getMessage());
+        }
+    }
+
+    /**
+     * Sends a comment to every subscriber, so that closed connections are noticed and proxies keep the idle
+     * streams open
+     */
+    @Scheduled(fixedRateString = "${app.stream.heartbeatMs:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> offer(subscriber, new Message(null, null))));
+    }
+
+    /**
+     * Drops the subscribers whose running send exceeded the send timeout, and adds a sender thread for each of
+     * them until their send returns
+     */
+    @Scheduled(fixedRateString = "${app.stream.sendCheckMs:1000}")
+    public void dropBlockedSubscribers() {
+        final long now = System.nanoTime();
+        subscribers.values().forEach(set -> set.forEach(subscriber -> {
+            final long startedAt = subscriber.sendState().get();
+            if (startedAt != IDLE && startedAt != BLOCKED && now - startedAt > sendTimeoutNanos
+                    && subscriber.sendState().compareAndSet(startedAt, BLOCKED)) {
+                dropped.increment();
+                log.warn(DROPPED_BLOCKED_STREAM_SUBSCRIBER, subscriber.userId(), Duration.ofNanos(sendTimeoutNanos));
+                remove(subscriber);
+                resizeSender(blockedSenders.incrementAndGet());
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.emitter().complete()));
+        sender.shutdownNow();
+    }
+
+    private void publish(WalletActivityEvent.TransactionCreated transaction) {
+        final WalletRef from = findWallet(transaction.fromWalletIban());
+        final WalletRef to = findWallet(transaction.toWalletIban());
+        final Set<Subscriber> senders = from != null ? subscribers.get(from.userId()) : null;
+        final Set<Subscriber> receivers = to != null && (from == null || to.userId() != from.userId())
+                ? subscribers.get(to.userId())
+                : null;
+        if (senders == null && receivers == null)
+            return;
+
+        final Message message = new Message(TRANSACTION_EVENT, toResponse(transaction, from, to));
+        if (senders != null)
+            senders.forEach(subscriber -> offer(subscriber, message));
+        if (receivers != null)
+            receivers.forEach(subscriber -> offer(subscriber, message));
+    }
+
+    private void publish(WalletActivityEvent.BalanceChanged balance) {
+        final WalletRef wallet = findWallet(balance.iban());
+        final Set<Subscriber> owners = wallet != null ? subscribers.get(wallet.userId()) : null;
+        if (owners == null)
+            return;
+
+        final Message message = new Message(BALANCE_EVENT, BalanceUpdateResponse.builder()
+                .walletId(balance.walletId())
+                .iban(balance.iban())
+                .delta(balance.delta())
+                .balance(balance.balance())
+                .build());
+        owners.forEach(subscriber -> offer(subscriber, message));
+    }
+
+    /**
+     * Queues the message without blocking, and closes the stream of the subscriber if its buffer is full
+     */
+    private void offer(Subscriber subscriber, Message message) {
+        if (subscriber.closed().get())
+            return;
+        if (!subscriber.queue().offer(message)) {
+            dropped.increment();
+            log.warn(DROPPED_STREAM_SUBSCRIBER, subscriber.userId(), bufferSize);
+            remove(subscriber);
+            subscriber.emitter().complete();
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true))
+            sender.execute(() -> drain(subscriber));
+    }
+
+    /**
+     * Sends the queued messages of the subscriber. Only one sender drains a subscriber at a time, so its
+     * messages are sent in the order they are queued.
+     */
+    private void drain(Subscriber subscriber) {
+        do {
+            Message message;
+            while ((message = subscriber.queue().poll()) != null) {
+                if (!send(subscriber, message))
+                    return;
+            }
+            subscriber.draining().set(false);
+        } while (!subscriber.queue().isEmpty() && subscriber.draining().compareAndSet(false, true));
+    }
+
+    /**
+     * Sends the message to the subscriber, and returns false if the stream is closed meanwhile
+     */
+    private boolean send(Subscriber subscriber, Message message) {
+        subscriber.sendState().set(System.nanoTime());
+        boolean sent = false;
+        boolean blocked;
+        try {
+            subscriber.emitter().send(message.name() != null
+                    ? SseEmitter.event().name(message.name()).data(message.data())
+                    : SseEmitter.event().comment(""));
+            sent = true;
+        } catch (IOException | IllegalStateException ex) {
+            // the connection is closed, the container completes the emitter
+            remove(subscriber);
+        } finally {
+            blocked = subscriber.sendState().getAndSet(IDLE) == BLOCKED;
+        }
+        if (blocked) {
+            // dropped while the send was blocked, give the extra sender thread back
+            resizeSender(blockedSenders.decrementAndGet());
+            if (sent)
+                subscriber.emitter().complete();
+            return false;
+        }
+        return sent;
+    }
+
+    /**
+     * Sizes the sender pool for the configured threads plus the ones blocked in a send
+     */
+    private synchronized void resizeSender(int blocked) {
+        final int size = senderThreads + Math.max(0, blocked);
+        if (size > sender.getMaximumPoolSize()) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed().compareAndSet(false, true))
+            return;
+        subscriber.queue().clear();
+        subscribers.computeIfPresent(subscriber.userId(), (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    /**
+     * Fetches the wallet with the given iban, or null if it is deleted in the meantime
+     */
+    private WalletRef findWallet(String iban) {
+        try {
+            return iban != null ? walletCache.get(iban) : null;
+        } catch (NoSuchElementFoundException ex) {
+            return null;
+        }
+    }
+
+    private TransactionResponse toResponse(WalletActivityEvent.TransactionCreated transaction, WalletRef from,
+                                           WalletRef to) {
+        final TransactionResponse response = new TransactionResponse();
+        response.setId(transaction.id());
+        response.setAmount(transaction.amount());
+        response.setDescription(transaction.description());
+        response.setCreatedAt(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT)
+                .format(LocalDateTime.ofInstant(transaction.createdAt(), ZoneOffset.UTC)));
+        response.setReferenceNumber(transaction.referenceNumber());
+        response.setStatus(transaction.status());
+        response.setFromWallet(toResponse(transaction.fromWalletIban(), from));
+        response.setToWallet(toResponse(transaction.toWalletIban(), to));
+        if (transaction.typeId() != null)
+            response.setType(referenceDataRegistry.toTypeResponse(transaction.typeId()));
+        return response;
+    }
+
+    private static WalletResponse toResponse(String iban, WalletRef wallet) {
+        final WalletResponse response = new WalletResponse();
+        response.setIban(iban);
+        if (wallet != null) {
+            final UserResponse user = new UserResponse();
+            user.setId(wallet.userId());
+            response.setId(wallet.id());
+            response.setName(wallet.name());
+            response.setUser(user);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,104 @@
+package com.wallet.uniqueness;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings. The bit array is sized for the expected number of keys and the target
+ * false positive probability, and the bit positions of a key are derived from two 64 bit hashes (Kirsch and
+ * Mitzenmacher). A key that was put is always reported as possibly contained; a key reported as not contained
+ * was never put.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLong setBits = new AtomicLong();
+
+    public BloomFilter(long expectedKeys, double falsePositiveProbability) {
+        final long keys = Math.max(1, expectedKeys);
+        final long optimalBits = (long) Math.ceil(-keys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        final int words = Math.toIntExact(Math.max(1, (optimalBits + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / keys * Math.log(2)));
+    }
+
+    public void put(String key) {
+        final long hash = hash(key);
+        final long first = mix(hash);
+        final long second = mix(hash + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long index = Long.remainderUnsigned(first + i * second, bitSize);
+            final int word = (int) (index >>> 6);
+            final long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0)
+                    break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+            if ((current & mask) == 0)
+                setBits.incrementAndGet();
+        }
+    }
+
+    public boolean mightContain(String key) {
+        final long hash = hash(key);
+        final long first = mix(hash);
+        final long second = mix(hash + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            final long index = Long.remainderUnsigned(first + i * second, bitSize);
+            if ((bits.get((int) (index >>> 6)) & 1L << index) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Probability that a key which was never put is reported as possibly contained, given the bits set so far
+     */
+    public double expectedFalsePositiveProbability() {
+        return Math.pow((double) setBits.get() / bitSize, hashCount);
+    }
+
+    /**
+     * Size of the bit array in bytes
+     */
+    public long memoryBytes() {
+        return bitSize / 8;
+    }
+
+    long bitSize() {
+        return bitSize;
+    }
+
+    int hashCount() {
+        return hashCount;
+    }
+
+    /**
+     * FNV-1a hash of the characters of the key
+     */
+    private static long hash(String key) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading the bits of the FNV hash over the whole value
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,28 @@
+package com.wallet.uniqueness;
+
+/**
+ * Case-insensitive unique keys whose existence checks are filtered by the {@link UniquenessIndex}, with the
+ * table and column they are read from
+ */
+public enum UniqueKey {
+
+    IBAN("wallet", "iban"),
+    USERNAME("public.\"user\"", "username"),
+    EMAIL("public.\"user\"", "email");
+
+    private final String table;
+    private final String column;
+
+    UniqueKey(String table, String column) {
+        this.table = table;
+        this.column = column;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+}
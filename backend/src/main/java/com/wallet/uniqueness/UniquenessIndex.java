@@ -0,0 +1,221 @@
+package com.wallet.uniqueness;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.cache.WalletChangedEvent;
+
+import static com.wallet.common.Constants.*;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Filters the case-insensitive existence checks of the ibans, usernames and emails through in-memory Bloom
+ * filters. A key the filter has never seen does not exist, so its database check is skipped; the unique
+ * constraints of the tables remain the final guard against concurrent inserts. Other keys are checked in the
+ * database, and the checks finding no row are counted as false positives.
+ * <p>
+ * The filters are built in the background at startup by streaming the existing keys, and rebuilt on schedule,
+ * which resizes them and drops the keys of deleted rows. Until a filter is built, every check goes to the
+ * database. Keys are added when the transaction creating them commits, to the current filter and to the one
+ * being built, so a rebuild cannot miss a key committed while it reads the table. Keys created by other
+ * instances are only seen after the next rebuild.
+ */
+@Slf4j(topic = "UniquenessIndex")
+@Component
+public class UniquenessIndex {
+
+    private static final String COUNT = "SELECT count(*) FROM %s";
+    private static final String KEYS = "SELECT %s FROM %s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final double falsePositiveProbability;
+    private final double capacityFactor;
+    private final long minCapacity;
+    private final Map<UniqueKey, Slot> slots = new EnumMap<>(UniqueKey.class);
+    private final ExecutorService builder = Executors.newSingleThreadExecutor();
+
+    /**
+     * Filters of a key with their check counters. The building filter is set while a rebuild reads the table.
+     */
+    private static final class Slot {
+        private volatile BloomFilter current;
+        private volatile BloomFilter building;
+        private Counter negatives;
+        private Counter falsePositives;
+        private Counter present;
+    }
+
+    public UniquenessIndex(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.uniqueness.enabled:true}") boolean enabled,
+                           @Value("${app.uniqueness.falsePositiveProbability:0.01}") double falsePositiveProbability,
+                           @Value("${app.uniqueness.capacityFactor:2}") double capacityFactor,
+                           @Value("${app.uniqueness.minCapacity:100000}") long minCapacity,
+                           @Value("${app.uniqueness.fetchSize:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // not read-only, so the keys are read from the primary even when the reads are routed to replicas
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.capacityFactor = capacityFactor;
+        this.minCapacity = minCapacity;
+
+        for (UniqueKey key : UniqueKey.values()) {
+            final Slot slot = new Slot();
+            final String tag = key.name().toLowerCase(Locale.ROOT);
+            slot.negatives = checkCounter(meterRegistry, tag, "negative");
+            slot.falsePositives = checkCounter(meterRegistry, tag, "falsePositive");
+            slot.present = checkCounter(meterRegistry, tag, "present");
+            Gauge.builder("uniqueness.filter.false.positive.rate", slot, UniquenessIndex::falsePositiveRate)
+                    .description("Share of the checks of absent keys which the filter could not answer")
+                    .tag("key", tag)
+                    .register(meterRegistry);
+            Gauge.builder("uniqueness.filter.expected.false.positive.rate", slot,
+                            s -> s.current != null ? s.current.expectedFalsePositiveProbability() : 0)
+                    .description("False positive probability of the filter given its bits set")
+                    .tag("key", tag)
+                    .register(meterRegistry);
+            Gauge.builder("uniqueness.filter.memory", slot, s -> s.current != null ? s.current.memoryBytes() : 0)
+                    .description("Size of the bit array of the filter")
+                    .tag("key", tag)
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            slots.put(key, slot);
+        }
+    }
+
+    /**
+     * Checks if the given key exists, running the given database check unless the filter rules it out
+     */
+    public boolean exists(UniqueKey key, String value, BooleanSupplier check) {
+        final Slot slot = slots.get(key);
+        final BloomFilter filter = slot.current;
+        if (!enabled || filter == null)
+            return check.getAsBoolean();
+        if (!filter.mightContain(normalize(value))) {
+            slot.negatives.increment();
+            return false;
+        }
+        final boolean exists = check.getAsBoolean();
+        (exists ? slot.present : slot.falsePositives).increment();
+        return exists;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled)
+            builder.execute(this::rebuild);
+    }
+
+    @Scheduled(cron = "${app.uniqueness.rebuildCron:0 15 * * * *}", zone = "UTC")
+    public void scheduledRebuild() {
+        if (enabled)
+            builder.execute(this::rebuild);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onWalletChanged(WalletChangedEvent event) {
+        event.ibans().forEach(iban -> add(UniqueKey.IBAN, iban));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserCreated(UserCreatedEvent event) {
+        add(UniqueKey.USERNAME, event.username());
+        add(UniqueKey.EMAIL, event.email());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    private void add(UniqueKey key, String value) {
+        if (value == null)
+            return;
+        final Slot slot = slots.get(key);
+        final String normalized = normalize(value);
+        final BloomFilter current = slot.current;
+        if (current != null)
+            current.put(normalized);
+        final BloomFilter building = slot.building;
+        if (building != null)
+            building.put(normalized);
+    }
+
+    /**
+     * Builds new filters from the keys in the tables, sized for the current number of rows times the capacity
+     * factor. A failing key keeps its previous filter.
+     */
+    private void rebuild() {
+        for (UniqueKey key : UniqueKey.values()) {
+            final Slot slot = slots.get(key);
+            final long start = System.currentTimeMillis();
+            try {
+                final long count = transactionTemplate.execute(status -> {
+                    final Long rows = jdbcTemplate.queryForObject(COUNT.formatted(key.getTable()), Long.class);
+                    final BloomFilter filter = new BloomFilter(
+                            Math.max(minCapacity, (long) (rows * capacityFactor)), falsePositiveProbability);
+                    // set before reading the keys, so the keys committed after the snapshot are added as well
+                    slot.building = filter;
+                    final long[] keys = {0};
+                    jdbcTemplate.query(KEYS.formatted(key.getColumn(), key.getTable()), rs -> {
+                        filter.put(normalize(rs.getString(1)));
+                        keys[0]++;
+                    });
+                    slot.current = filter;
+                    return keys[0];
+                });
+                log.info(REBUILT_UNIQUENESS_FILTER, key, count, System.currentTimeMillis() - start);
+            } catch (RuntimeException ex) {
+                log.error(NOT_REBUILT_UNIQUENESS_FILTER, key, ex.getMessage());
+            } finally {
+                slot.building = null;
+            }
+        }
+    }
+
+    /**
+     * Keys are compared in upper case, as the upper() predicates of the database checks do
+     */
+    private static String normalize(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    private static double falsePositiveRate(Slot slot) {
+        final double falsePositives = slot.falsePositives.count();
+        final double absent = falsePositives + slot.negatives.count();
+        return absent > 0 ? falsePositives / absent : 0;
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, String key, String result) {
+        return Counter.builder("uniqueness.filter.checks")
+                .description("Existence checks filtered by the uniqueness index")
+                .tag("key", key)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
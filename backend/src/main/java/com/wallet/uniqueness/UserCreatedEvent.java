@@ -0,0 +1,7 @@
+package com.wallet.uniqueness;
+
+/**
+ * Published when a user is created, with the username and email added to the uniqueness index on commit
+ */
+public record UserCreatedEvent(String username, String email) {
+}
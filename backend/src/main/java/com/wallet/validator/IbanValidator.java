@@ -9,34 +9,159 @@ import static com.wallet.common.Constants.*;
 
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Used for validating IBAN numbers
+ * Used for validating IBAN numbers. The check works over the given characters in place without allocating:
+ * leading and trailing whitespace is skipped, the country must be in the table below, the length and the BBAN
+ * structure must match the country entry and the mod-97 checksum must be 1. Letters are case-insensitive.
  */
 @Slf4j(topic = "IbanValidator")
 @RequiredArgsConstructor
 @Component
 public class IbanValidator implements ConstraintValidator<ValidIban, String> {
 
+    /**
+     * Country code, IBAN length and BBAN structure (n: digits, a: letters, c: letters or digits)
+     * taken from the SWIFT IBAN registry
+     */
+    private static final String[] COUNTRIES = {
+            "AD 24 4n4n12c", "AE 23 3n16n", "AL 28 8n16c", "AT 20 5n11n",
+            "AZ 28 4a20c", "BA 20 3n3n8n2n", "BE 16 3n7n2n", "BG 22 4a4n2n8c",
+            "BH 22 4a14c", "BI 27 5n5n11n2n", "BR 29 8n5n10n1a1c", "BY 28 4c4n16c",
+            "CH 21 5n12c", "CR 22 4n14n", "CY 28 3n5n16c", "CZ 24 4n6n10n",
+            "DE 22 8n10n", "DJ 27 5n5n11n2n", "DK 18 4n9n1n", "DO 28 4c20n",
+            "EE 20 2n2n11n1n", "EG 29 4n4n17n", "ES 24 4n4n1n1n10n", "FI 18 3n11n",
+            "FK 18 2a12n", "FO 18 4n9n1n", "FR 27 5n5n11c2n", "GB 22 4a6n8n",
+            "GE 22 2a16n", "GI 23 4a15c", "GL 18 4n9n1n", "GR 27 3n4n16c",
+            "GT 28 4c20c", "HR 21 7n10n", "HU 28 3n4n1n15n1n", "IE 22 4a6n8n",
+            "IL 23 3n3n13n", "IQ 23 4a3n12n", "IS 26 4n2n6n10n", "IT 27 1a5n5n12c",
+            "JO 30 4a4n18c", "KW 30 4a22c", "KZ 20 3n13c", "LB 28 4n20c",
+            "LC 32 4a24c", "LI 21 5n12c", "LT 20 5n11n", "LU 20 3n13c",
+            "LV 21 4a13c", "LY 25 3n3n15n", "MC 27 5n5n11c2n", "MD 24 2c18c",
+            "ME 22 3n13n2n", "MK 19 3n10c2n", "MN 20 4n12n", "MR 27 5n5n11n2n",
+            "MT 31 4a5n18c", "MU 30 4a2n2n12n3n3a", "NI 28 4a20n", "NL 18 4a10n",
+            "NO 15 4n6n1n", "OM 23 3n16c", "PK 24 4a16c", "PL 28 8n16n",
+            "PS 29 4a21c", "PT 25 4n4n11n2n", "QA 29 4a21c", "RO 24 4a16c",
+            "RS 22 3n13n2n", "RU 33 9n5n15c", "SA 24 2n18c", "SC 31 4a2n2n16n3a",
+            "SD 18 2n12n", "SE 24 3n16n1n", "SI 19 5n8n2n", "SK 24 4n6n10n",
+            "SM 27 1a5n5n12c", "SO 23 4n3n12n", "ST 25 4n4n11n2n", "SV 28 4a20n",
+            "TL 23 3n14n2n", "TN 24 2n3n13n2n", "TR 26 5n1n16c", "UA 29 6n19c",
+            "VA 22 3n15n", "VG 24 4a16n", "XK 20 4n10n2n"
+    };
+
+    /**
+     * Character classes of the BBAN positions indexed by country, null for unknown countries
+     */
+    private static final byte[][] STRUCTURES = new byte[26 * 26][];
+
+    static {
+        for (String entry : COUNTRIES) {
+            final String[] parts = entry.split(" ");
+            final byte[] structure = new byte[Integer.parseInt(parts[1]) - 4];
+            int position = 0;
+            int count = 0;
+            for (char c : parts[2].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    count = count * 10 + (c - '0');
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        structure[position++] = (byte) c;
+                    }
+                    count = 0;
+                }
+            }
+            if (position != structure.length)
+                throw new IllegalStateException("IBAN structure does not match the length: " + entry);
+            STRUCTURES[countryIndex(parts[0].charAt(0), parts[0].charAt(1))] = structure;
+        }
+    }
+
     @Override
     public boolean isValid(String iban, ConstraintValidatorContext context) {
-        String trimmed = iban.trim();
-        if (trimmed.length() < IBAN_MIN_SIZE || trimmed.length() > IBAN_MAX_SIZE) {
-            return false;
+        return iban == null || check(iban);
+    }
+
+    /**
+     * Validates the given IBANs (e.g. for wallet imports) and returns the indexes of the invalid ones
+     */
+    public List<Integer> validateAll(List<String> ibans) {
+        final List<Integer> invalid = new ArrayList<>();
+        for (int i = 0; i < ibans.size(); i++) {
+            final String iban = ibans.get(i);
+            if (iban == null || !check(iban))
+                invalid.add(i);
         }
-        String reformat = trimmed.substring(4) + trimmed.substring(0, 4);
-        long total = 0;
+        return invalid;
+    }
 
-        for (int i = 0; i < reformat.length(); i++) {
-            int charValue = Character.getNumericValue(reformat.charAt(i));
+    /**
+     * Checks the country, length, BBAN structure and checksum of the given IBAN
+     */
+    public static boolean check(CharSequence iban) {
+        int start = 0;
+        int end = iban.length();
+        while (start < end && iban.charAt(start) <= ' ') start++;
+        while (end > start && iban.charAt(end - 1) <= ' ') end--;
 
-            if (charValue < 0 || charValue > 35)
-                return false;
+        final int length = end - start;
+        if (length < IBAN_MIN_SIZE || length > IBAN_MAX_SIZE)
+            return false;
 
-            total = (charValue > 9 ? total * 100 : total * 10) + charValue;
+        final int country0 = upper(iban.charAt(start));
+        final int country1 = upper(iban.charAt(start + 1));
+        if (!isLetter(country0) || !isLetter(country1))
+            return false;
 
+        final byte[] structure = STRUCTURES[countryIndex((char) country0, (char) country1)];
+        if (structure == null || structure.length != length - 4)
+            return false;
+
+        final int check0 = iban.charAt(start + 2) - '0';
+        final int check1 = iban.charAt(start + 3) - '0';
+        if (check0 < 0 || check0 > 9 || check1 < 0 || check1 > 9)
+            return false;
+        final int checkDigits = check0 * 10 + check1;
+        if (checkDigits < 2 || checkDigits > 98)
+            return false;
+
+        // the checksum is calculated over the BBAN followed by the country code and the check digits
+        long total = 0;
+        for (int i = 0; i < structure.length; i++) {
+            final int c = upper(iban.charAt(start + 4 + i));
+            final boolean digit = c >= '0' && c <= '9';
+            final boolean letter = isLetter(c);
+            switch (structure[i]) {
+                case 'n' -> {
+                    if (!digit) return false;
+                }
+                case 'a' -> {
+                    if (!letter) return false;
+                }
+                default -> {
+                    if (!digit && !letter) return false;
+                }
+            }
+            total = digit ? total * 10 + (c - '0') : total * 100 + (c - 'A' + 10);
             if (total > IBAN_MAX)
-                total = (total % IBAN_MODULUS);
+                total = total % IBAN_MODULUS;
         }
-        return (total % IBAN_MODULUS) == 1;
+        total = total * 100 + (country0 - 'A' + 10);
+        total = total * 100 + (country1 - 'A' + 10);
+        total = (total * 100 + checkDigits) % IBAN_MODULUS;
+        return total == 1;
+    }
+
+    private static int countryIndex(char c0, char c1) {
+        return (c0 - 'A') * 26 + (c1 - 'A');
+    }
+
+    private static int upper(char c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+    }
+
+    private static boolean isLetter(int c) {
+        return c >= 'A' && c <= 'Z';
     }
 }
@@ -0,0 +1,75 @@
+package com.wallet.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import static com.wallet.common.Constants.PINNED_VIRTUAL_THREAD;
+
+import java.time.Duration;
+
+/**
+ * Surfaces the JFR jdk.VirtualThreadPinned events, which are recorded when a virtual thread blocks while pinned
+ * to its carrier (e.g. inside a synchronized block) for longer than the threshold. Pinned durations are published
+ * as the jvm.threads.virtual.pinned timer, and each event is logged with the first application frame (or the top
+ * frame) of its stack, so the hotspots can be found without a recording file.
+ * Only built with the java21 profile.
+ */
+@Slf4j(topic = "VirtualThreadPinningMonitor")
+@Component
+@ConditionalOnProperty(name = "app.virtualThreads.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.wallet.";
+
+    private final Timer pinned;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.virtualThreads.pinnedThreshold:20ms}") Duration threshold) {
+        this.threshold = threshold;
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent blocked while pinned to their carrier threads")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null)
+            stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        log.warn(PINNED_VIRTUAL_THREAD, event.getDuration().toMillis(), frameOf(event));
+    }
+
+    private static String frameOf(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty())
+            return "unknown";
+        final RecordedFrame frame = event.getStackTrace().getFrames().stream()
+                .filter(f -> f.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .orElse(event.getStackTrace().getFrames().get(0));
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,30 @@
+-- Runs of the balance reconciliation. next_wallet_id is the checkpoint of a run: the wallets below it are
+-- reconciled and wallets_checked counts them, so an interrupted run resumes from there.
+
+CREATE SEQUENCE IF NOT EXISTS sequence_reconciliation_run START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE reconciliation_run
+(
+    id              BIGINT                      NOT NULL,
+    status          VARCHAR(20)                 NOT NULL,
+    started_at      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    finished_at     TIMESTAMP WITHOUT TIME ZONE,
+    chunk_size      INTEGER                     NOT NULL,
+    max_wallet_id   BIGINT                      NOT NULL,
+    next_wallet_id  BIGINT                      NOT NULL,
+    wallets_checked BIGINT                      NOT NULL,
+    drifts_found    BIGINT                      NOT NULL,
+    CONSTRAINT pk_reconciliation_run PRIMARY KEY (id)
+);
+
+CREATE TABLE reconciliation_drift
+(
+    run_id         BIGINT  NOT NULL,
+    wallet_id      BIGINT  NOT NULL,
+    balance        DECIMAL NOT NULL,
+    ledger_balance DECIMAL NOT NULL,
+    CONSTRAINT pk_reconciliation_drift PRIMARY KEY (run_id, wallet_id)
+);
+
+ALTER TABLE reconciliation_drift
+    ADD CONSTRAINT FK_RECONCILIATION_DRIFT_ON_RUN FOREIGN KEY (run_id) REFERENCES reconciliation_run (id);
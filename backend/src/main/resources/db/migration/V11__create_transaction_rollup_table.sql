@@ -0,0 +1,16 @@
+-- Monthly totals of the transactions, used by the statistics endpoint. The current and the previous month are
+-- refreshed by StatsService; the totals of older months are kept when their transactions are archived.
+
+CREATE TABLE transaction_rollup
+(
+    month             DATE                        NOT NULL,
+    transaction_count BIGINT                      NOT NULL,
+    amount            DECIMAL                     NOT NULL,
+    refreshed_at      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_transaction_rollup PRIMARY KEY (month)
+);
+
+INSERT INTO transaction_rollup (month, transaction_count, amount, refreshed_at)
+SELECT date_trunc('month', created_at)::date, count(*), sum(amount), now() AT TIME ZONE 'UTC'
+FROM transaction
+GROUP BY 1;
@@ -0,0 +1,9 @@
+-- The transaction, wallet and user ids are allocated in blocks by the pooled-lo optimizer, where each value read
+-- from the sequence is the first id of a block. The increments of the sequences have to match the block sizes
+-- (app.idgen.*BlockSize), which is checked at startup. Ids handed out before never exceed the current values of
+-- the sequences, so the next blocks start past them.
+-- sequence_ledger_entry stays at 1, since the entries of a wallet take their ids at insert, in posting order.
+
+ALTER SEQUENCE sequence_transaction INCREMENT BY 50;
+ALTER SEQUENCE sequence_wallet INCREMENT BY 20;
+ALTER SEQUENCE public.sequence_user INCREMENT BY 20;
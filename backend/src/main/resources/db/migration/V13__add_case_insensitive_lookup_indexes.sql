@@ -0,0 +1,11 @@
+-- Expression indexes serving the case-insensitive existence checks run on each wallet create/update and signup,
+-- whose upper(column) = upper(?) predicates can not use the plain unique indexes. They are not unique, so the
+-- migration does not fail on rows already differing only in case; the services reject such duplicates.
+
+CREATE INDEX wallet_upper_iban_idx ON wallet (upper(iban));
+
+CREATE INDEX wallet_user_id_upper_name_idx ON wallet (user_id, upper(name));
+
+CREATE INDEX user_upper_username_idx ON public."user" (upper(username));
+
+CREATE INDEX user_upper_email_idx ON public."user" (upper(email));
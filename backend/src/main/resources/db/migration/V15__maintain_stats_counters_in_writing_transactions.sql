@@ -0,0 +1,23 @@
+-- The statistics are kept up to date by the transactions writing the counted rows, which add their changes to
+-- the counters in the same transaction. Each counter is split into slots picked at random by the writers, so
+-- that concurrent writers rarely wait for the lock of the same row; readers sum up the slots.
+
+ALTER TABLE transaction_rollup ADD COLUMN slot SMALLINT NOT NULL DEFAULT 0;
+
+ALTER TABLE transaction_rollup DROP CONSTRAINT pk_transaction_rollup;
+
+ALTER TABLE transaction_rollup ADD CONSTRAINT pk_transaction_rollup PRIMARY KEY (month, slot);
+
+CREATE TABLE stats_counter
+(
+    name  VARCHAR(20) NOT NULL,
+    slot  SMALLINT    NOT NULL,
+    value BIGINT      NOT NULL,
+    CONSTRAINT pk_stats_counter PRIMARY KEY (name, slot)
+);
+
+INSERT INTO stats_counter (name, slot, value)
+SELECT 'wallets', 0, count(*) FROM wallet;
+
+INSERT INTO stats_counter (name, slot, value)
+SELECT 'users', 0, count(*) FROM public."user";
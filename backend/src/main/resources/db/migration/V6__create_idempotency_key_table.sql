@@ -0,0 +1,15 @@
+-- Idempotency keys are scoped by the user sending them and written in the transaction moving the money, so a
+-- row only exists for a committed request. Requests are compared by the SHA-256 digest of their canonical body.
+
+CREATE TABLE idempotency_key
+(
+    user_id        BIGINT                      NOT NULL,
+    id             VARCHAR(100)                NOT NULL,
+    operation      VARCHAR(20)                 NOT NULL,
+    request_digest CHAR(64)                    NOT NULL,
+    response_id    BIGINT                      NOT NULL,
+    created_at     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_idempotency_key PRIMARY KEY (user_id, id)
+);
+
+CREATE INDEX idempotency_key_created_at_idx ON idempotency_key (created_at);
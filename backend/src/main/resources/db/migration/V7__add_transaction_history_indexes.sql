@@ -0,0 +1,3 @@
+CREATE INDEX transaction_from_wallet_id_created_at_id_idx ON transaction (from_wallet_id, created_at, id);
+
+CREATE INDEX transaction_to_wallet_id_created_at_id_idx ON transaction (to_wallet_id, created_at, id);
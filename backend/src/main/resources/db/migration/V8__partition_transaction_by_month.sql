@@ -0,0 +1,67 @@
+-- Converts the transaction table to a table partitioned by month on created_at. Primary and unique keys of a
+-- partitioned table have to contain the partition key, so they are extended with created_at. Partitions are
+-- named transaction_yyyy_mm and created ahead of time by TransactionPartitionManager; rows outside of the
+-- existing partitions go to transaction_default.
+--
+-- As a consequence, the database enforces unique (reference_number, created_at) pairs only, not unique reference
+-- numbers. Reference numbers are generated UUIDs (random or version 7, see app.idgen.referenceNumbers), so a
+-- duplicate is not expected, but the lookups by reference number return the newest match instead of assuming a
+-- single row.
+
+CREATE TABLE transaction_partitioned
+(
+    id               BIGINT                      NOT NULL,
+    amount           DECIMAL                     NOT NULL,
+    description      VARCHAR(50),
+    created_at       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    reference_number UUID                        NOT NULL,
+    status           VARCHAR(20)                 NOT NULL,
+    from_wallet_id   BIGINT                      NOT NULL,
+    to_wallet_id     BIGINT                      NOT NULL,
+    type_id          BIGINT                      NOT NULL
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE transaction_default PARTITION OF transaction_partitioned DEFAULT;
+
+DO
+$$
+    DECLARE
+        month TIMESTAMP := date_trunc('month', least((SELECT min(created_at) FROM transaction), now() AT TIME ZONE 'UTC'));
+    BEGIN
+        WHILE month < date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '4 months'
+            LOOP
+                EXECUTE format('CREATE TABLE %I PARTITION OF transaction_partitioned FOR VALUES FROM (%L) TO (%L)',
+                               'transaction_' || to_char(month, 'YYYY_MM'), month, month + INTERVAL '1 month');
+                month := month + INTERVAL '1 month';
+            END LOOP;
+    END
+$$;
+
+INSERT INTO transaction_partitioned (id, amount, description, created_at, reference_number, status,
+                                     from_wallet_id, to_wallet_id, type_id)
+SELECT id, amount, description, created_at, reference_number, status, from_wallet_id, to_wallet_id, type_id
+FROM transaction;
+
+DROP TABLE transaction;
+
+ALTER TABLE transaction_partitioned
+    RENAME TO transaction;
+
+ALTER TABLE transaction
+    ADD CONSTRAINT pk_transaction PRIMARY KEY (id, created_at);
+
+ALTER TABLE transaction
+    ADD CONSTRAINT uc_transaction_referencenumber UNIQUE (reference_number, created_at);
+
+CREATE INDEX transaction_from_wallet_id_created_at_id_idx ON transaction (from_wallet_id, created_at, id);
+
+CREATE INDEX transaction_to_wallet_id_created_at_id_idx ON transaction (to_wallet_id, created_at, id);
+
+ALTER TABLE transaction
+    ADD CONSTRAINT FK_TRANSACTION_ON_FROM_WALLET FOREIGN KEY (from_wallet_id) REFERENCES wallet (id);
+
+ALTER TABLE transaction
+    ADD CONSTRAINT FK_TRANSACTION_ON_TO_WALLET FOREIGN KEY (to_wallet_id) REFERENCES wallet (id);
+
+ALTER TABLE transaction
+    ADD CONSTRAINT FK_TRANSACTION_ON_TYPE FOREIGN KEY (type_id) REFERENCES type (id);
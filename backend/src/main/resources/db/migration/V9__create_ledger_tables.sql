@@ -0,0 +1,51 @@
+-- Double-entry ledger. Every money movement is booked as entries summing up to zero: the wallet losing the amount
+-- gets a negative entry and the wallet receiving it a positive one. Deposits, withdrawals, initial balances and
+-- manual balance changes are booked against the external account, i.e. entries without a wallet.
+--
+-- Entries of a wallet are only written while its row is locked and take their ids from the sequence at insert
+-- time (no caching or pooling), so a balance snapshot taken under the row lock covers exactly the entries of the
+-- wallet up to its last_entry_id.
+
+CREATE SEQUENCE IF NOT EXISTS sequence_ledger_entry START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE ledger_entry
+(
+    id             BIGINT                      NOT NULL,
+    wallet_id      BIGINT,
+    transaction_id BIGINT,
+    amount         DECIMAL                     NOT NULL,
+    created_at     TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_ledger_entry PRIMARY KEY (id)
+);
+
+CREATE INDEX ledger_entry_wallet_id_id_idx ON ledger_entry (wallet_id, id);
+
+CREATE INDEX ledger_entry_transaction_id_idx ON ledger_entry (transaction_id);
+
+ALTER TABLE ledger_entry
+    ADD CONSTRAINT FK_LEDGER_ENTRY_ON_WALLET FOREIGN KEY (wallet_id) REFERENCES wallet (id);
+
+CREATE TABLE balance_snapshot
+(
+    wallet_id     BIGINT                      NOT NULL,
+    last_entry_id BIGINT                      NOT NULL,
+    balance       DECIMAL                     NOT NULL,
+    created_at    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_balance_snapshot PRIMARY KEY (wallet_id, last_entry_id)
+);
+
+ALTER TABLE balance_snapshot
+    ADD CONSTRAINT FK_BALANCE_SNAPSHOT_ON_WALLET FOREIGN KEY (wallet_id) REFERENCES wallet (id);
+
+-- open the ledger with the current balances of the existing wallets
+INSERT INTO ledger_entry (id, wallet_id, transaction_id, amount, created_at)
+SELECT nextval('sequence_ledger_entry'), w.id, NULL, w.balance, now() AT TIME ZONE 'UTC'
+FROM wallet w
+WHERE w.balance <> 0
+ORDER BY w.id;
+
+INSERT INTO ledger_entry (id, wallet_id, transaction_id, amount, created_at)
+SELECT nextval('sequence_ledger_entry'), NULL, NULL, -w.balance, now() AT TIME ZONE 'UTC'
+FROM wallet w
+WHERE w.balance <> 0
+ORDER BY w.id;
@@ -0,0 +1,106 @@
+package com.wallet.archive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.wallet.common.HistoryCursor;
+import com.wallet.model.Status;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    private static final Instant START = Instant.parse("2022-01-01T00:00:00Z");
+    private static final int ROWS = 1000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWrittenRows() throws IOException {
+        final List<ArchivedTransaction> rows = rows();
+        final List<ArchivedTransaction> shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled, new Random(1));
+
+        ArchiveSegment.write(directory.resolve("segment.seg"), shuffled, 64);
+        final ArchiveSegment segment = ArchiveSegment.open(directory.resolve("segment.seg"));
+
+        assertEquals(rows, segment.findAll());
+        assertEquals(ROWS, segment.getRowCount());
+        assertEquals(new HistoryCursor(rows.get(ROWS - 1).createdAt(), rows.get(ROWS - 1).id()), segment.getLastPosition());
+    }
+
+    @Test
+    void findsRowsByReferenceNumber() throws IOException {
+        final List<ArchivedTransaction> rows = rows();
+        final ArchiveSegment segment = ArchiveSegment.write(directory.resolve("segment.seg"), rows, 64);
+
+        for (ArchivedTransaction row : rows)
+            assertEquals(Optional.of(row), segment.findByReferenceNumber(row.referenceNumber()));
+        assertTrue(segment.findByReferenceNumber(UUID.randomUUID()).isEmpty());
+    }
+
+    @Test
+    void findsNewestRowOfDuplicatedReferenceNumber() throws IOException {
+        final List<ArchivedTransaction> rows = rows();
+        final UUID duplicated = rows.get(10).referenceNumber();
+        for (int i : new int[]{500, 990})
+            rows.set(i, withReferenceNumber(rows.get(i), duplicated));
+        final ArchiveSegment segment = ArchiveSegment.write(directory.resolve("segment.seg"), rows, 64);
+
+        assertEquals(Optional.of(rows.get(990)), segment.findByReferenceNumber(duplicated));
+    }
+
+    @Test
+    void findsRowsOfWalletsNewestFirst() throws IOException {
+        final List<ArchivedTransaction> rows = rows();
+        final ArchiveSegment segment = ArchiveSegment.write(directory.resolve("segment.seg"), rows, 64);
+        final ArchivedTransaction before = rows.get(800);
+        final Instant from = rows.get(100).createdAt();
+
+        final List<ArchivedTransaction> expected = rows.stream()
+                .filter(row -> row.fromWalletId() == 3 || row.toWalletId() == 3 || row.fromWalletId() == 7 || row.toWalletId() == 7)
+                .filter(row -> !row.createdAt().isBefore(from) && row.id() < before.id())
+                .sorted(ArchiveSegment.ORDER.reversed())
+                .limit(50)
+                .toList();
+
+        assertEquals(expected, segment.findByWalletIds(new long[]{3, 7}, from,
+                new HistoryCursor(before.createdAt(), before.id()), 50));
+    }
+
+    private static ArchivedTransaction withReferenceNumber(ArchivedTransaction row, UUID referenceNumber) {
+        return new ArchivedTransaction(row.id(), row.amount(), row.description(), row.createdAt(), referenceNumber,
+                row.status(), row.fromWalletId(), row.toWalletId(), row.typeId());
+    }
+
+    private static List<ArchivedTransaction> rows() {
+        final Random random = new Random(42);
+        final List<ArchivedTransaction> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new ArchivedTransaction(1000L + i * 5L,
+                    new BigDecimal(random.nextInt(100000)).movePointLeft(2),
+                    i % 3 == 0 ? null : "Transfer " + i,
+                    START.plus(i * 7L, ChronoUnit.MINUTES).plus(random.nextInt(1000), ChronoUnit.MICROS),
+                    new UUID(random.nextLong(), random.nextLong()),
+                    Status.values()[i % Status.values().length],
+                    random.nextInt(1, 20),
+                    random.nextInt(1, 20),
+                    random.nextInt(1, 3)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,99 @@
+package com.wallet.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.wallet.dto.request.BatchTransferRequest;
+import com.wallet.dto.response.BatchTransferResponse;
+import com.wallet.dto.response.BatchTransferResult;
+import com.wallet.model.Status;
+import com.wallet.service.IdempotencyService;
+import com.wallet.service.WalletService;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static com.wallet.common.Constants.NOT_SETTLED_BATCH;
+import static com.wallet.common.Constants.SUCCESS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class WalletControllerTest {
+
+    private static final String BATCH = """
+            {"atomic": false, "transfers": [
+              {"fromWalletIban": "GB33BUKB20201555555555", "toWalletIban": "GB94BARC10201530093459",
+               "amount": 10, "description": "First", "typeId": 1},
+              {"fromWalletIban": "GB33BUKB20201555555555", "toWalletIban": "GB94BARC10201530093459",
+               "amount": 20, "description": "Second", "typeId": 1}
+            ]}""";
+
+    private final WalletService walletService = mock(WalletService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        final Clock clock = Clock.fixed(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new WalletController(clock, walletService, mock(IdempotencyService.class)))
+                .build();
+    }
+
+    @Test
+    void settledBatchIsCreated() throws Exception {
+        when(walletService.transferFundsInBatch(any(BatchTransferRequest.class))).thenReturn(response(
+                result(0, 1L, Status.SUCCESS), result(1, 2L, Status.SUCCESS)));
+
+        mockMvc.perform(post("/api/v1/wallets/transfers/batch").contentType(MediaType.APPLICATION_JSON).content(BATCH))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.message").value(SUCCESS))
+                .andExpect(jsonPath("$.data.succeeded").value(2));
+    }
+
+    @Test
+    void partiallyRejectedBatchIsMultiStatus() throws Exception {
+        when(walletService.transferFundsInBatch(any(BatchTransferRequest.class))).thenReturn(response(
+                result(0, 1L, Status.SUCCESS), result(1, null, Status.ERROR)));
+
+        mockMvc.perform(post("/api/v1/wallets/transfers/batch").contentType(MediaType.APPLICATION_JSON).content(BATCH))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.message").value(NOT_SETTLED_BATCH))
+                .andExpect(jsonPath("$.data.failed").value(1))
+                .andExpect(jsonPath("$.data.results[1].status").value(Status.ERROR.name()));
+    }
+
+    @Test
+    void rejectedBatchIsMultiStatus() throws Exception {
+        when(walletService.transferFundsInBatch(any(BatchTransferRequest.class))).thenReturn(response(
+                result(0, null, Status.PENDING), result(1, null, Status.ERROR)));
+
+        mockMvc.perform(post("/api/v1/wallets/transfers/batch").contentType(MediaType.APPLICATION_JSON).content(BATCH))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.message").value(NOT_SETTLED_BATCH))
+                .andExpect(jsonPath("$.data.succeeded").value(0));
+    }
+
+    private static BatchTransferResponse response(BatchTransferResult... results) {
+        final int succeeded = (int) List.of(results).stream()
+                .filter(result -> result.status() == Status.SUCCESS)
+                .count();
+        return BatchTransferResponse.builder()
+                .succeeded(succeeded)
+                .failed(results.length - succeeded)
+                .results(List.of(results))
+                .build();
+    }
+
+    private static BatchTransferResult result(int index, Long id, Status status) {
+        return BatchTransferResult.builder().index(index).id(id).status(status).build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.wallet.hotwallet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.cache.ReferenceDataRegistry;
+import com.wallet.dto.request.TransactionRequest;
+import com.wallet.exception.InsufficientFundsException;
+import com.wallet.idgen.ReferenceNumberGenerator;
+import com.wallet.model.Wallet;
+import com.wallet.repository.IdempotencyKeyJdbcRepository;
+import com.wallet.repository.LedgerJdbcRepository;
+import com.wallet.repository.TransactionJdbcRepository;
+import com.wallet.repository.WalletJdbcRepository;
+import com.wallet.repository.WalletRepository;
+import com.wallet.stats.StatsService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs transfers through the ledger with the database writes mocked out
+ */
+class HotWalletLedgerTest {
+
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 2000;
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletJdbcRepository walletJdbcRepository = mock(WalletJdbcRepository.class);
+    private final TransactionJdbcRepository transactionJdbcRepository = mock(TransactionJdbcRepository.class);
+    private final ReferenceDataRegistry referenceDataRegistry = mock(ReferenceDataRegistry.class);
+    private HotWalletLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(walletRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            final Wallet wallet = new Wallet();
+            wallet.setId(invocation.getArgument(0));
+            wallet.setBalance(new BigDecimal("1000000000.00"));
+            return Optional.of(wallet);
+        });
+        when(transactionJdbcRepository.nextIds(anyInt())).thenAnswer(invocation ->
+                LongStream.range(0, invocation.<Integer>getArgument(0)).boxed().toList());
+        when(referenceDataRegistry.hasType(anyLong())).thenReturn(true);
+
+        ledger = new HotWalletLedger(walletRepository, walletJdbcRepository, transactionJdbcRepository,
+                mock(LedgerJdbcRepository.class), mock(IdempotencyKeyJdbcRepository.class), referenceDataRegistry,
+                new TransactionTemplate(transactionManager), mock(StatsService.class),
+                mock(ApplicationEventPublisher.class), mock(ReferenceNumberGenerator.class));
+        ReflectionTestUtils.setField(ledger, "enabled", true);
+        ReflectionTestUtils.setField(ledger, "flaggedIbans", Set.of());
+        ReflectionTestUtils.setField(ledger, "maxWallets", 64);
+        ReflectionTestUtils.setField(ledger, "scale", 2);
+        ReflectionTestUtils.setField(ledger, "batchSize", 500);
+        ReflectionTestUtils.setField(ledger, "flushIntervalMs", 5L);
+        ReflectionTestUtils.setField(ledger, "ackTimeoutMs", 5000L);
+        ledger.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledger.stop();
+    }
+
+    @Test
+    void crossingTransfersOnTheSameStripesComplete() throws Exception {
+        // 1 and 65 share a stripe, as do 2 and 66, so 1 -> 66 and 2 -> 65 lock the same two stripes
+        // while their wallet ids are in opposite stripe order
+        assertEquals(HotWalletLedger.stripeIndex(1), HotWalletLedger.stripeIndex(65));
+        assertEquals(HotWalletLedger.stripeIndex(2), HotWalletLedger.stripeIndex(66));
+        final long[][] pairs = {{1, 66}, {66, 1}, {2, 65}, {65, 2}, {1, 65}, {66, 2}};
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+            final Thread thread = new Thread(runnable);
+            // a deadlocked thread must not keep the test JVM alive
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    final long[] pair = pairs[random.nextInt(pairs.length)];
+                    try {
+                        ledger.transfer(pair[0], pair[1], request(random.nextInt(1, 100)), null);
+                    } catch (InsufficientFundsException ignored) {
+                        // not expected with the seeded balances, but not what this test checks
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<Map<Long, BigDecimal>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(walletJdbcRepository, atLeastOnce()).applyBalanceDeltas(deltas.capture());
+        final BigDecimal total = deltas.getAllValues().stream()
+                .flatMap(batch -> batch.values().stream())
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, total.signum());
+        assertTrue(ledger.isResident(1) && ledger.isResident(66));
+    }
+
+    private static TransactionRequest request(int amount) {
+        final TransactionRequest request = new TransactionRequest();
+        request.setFromWalletIban("FROM");
+        request.setToWalletIban("TO");
+        request.setAmount(BigDecimal.valueOf(amount));
+        request.setDescription("Hot wallet test");
+        request.setTypeId(1L);
+        return request;
+    }
+}
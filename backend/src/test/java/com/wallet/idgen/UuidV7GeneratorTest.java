@@ -0,0 +1,115 @@
+package com.wallet.idgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7GeneratorTest {
+
+    private static final long NOW = Instant.parse("2024-05-01T12:00:00Z").toEpochMilli();
+
+    private final AtomicLong millis = new AtomicLong(NOW);
+    private final UuidV7Generator generator = new UuidV7Generator(new FixedClock(millis));
+
+    @Test
+    void setsVersionVariantAndTimestamp() {
+        final UUID uuid = generator.next();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(NOW, uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void increasesWithinTheSameMillisecond() {
+        final List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+            uuids.add(generator.next());
+
+        assertIncreasing(uuids);
+    }
+
+    @Test
+    void increasesWhenTheClockMovesBackwards() {
+        final List<UUID> uuids = new ArrayList<>();
+        uuids.add(generator.next());
+        millis.set(NOW - 1000);
+        uuids.add(generator.next());
+        uuids.add(generator.next());
+        millis.set(NOW + 1);
+        uuids.add(generator.next());
+
+        assertIncreasing(uuids);
+        assertEquals(NOW + 1, uuids.get(3).getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void generatesUniqueValuesConcurrently() {
+        final Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 100_000).parallel().forEach(i -> uuids.add(generator.next()));
+
+        assertEquals(100_000, uuids.size());
+    }
+
+    @Test
+    void randomGeneratorSetsVersion4() {
+        final Set<UUID> uuids = new HashSet<>();
+        final RandomUuidGenerator random = new RandomUuidGenerator();
+        for (int i = 0; i < 100; i++)
+            uuids.add(random.next());
+
+        assertEquals(100, uuids.size());
+        uuids.forEach(uuid -> assertEquals(4, uuid.version()));
+    }
+
+    /**
+     * Compares as PostgreSQL does, by the unsigned bytes of the UUIDs
+     */
+    private static void assertIncreasing(List<UUID> uuids) {
+        for (int i = 1; i < uuids.size(); i++) {
+            final UUID previous = uuids.get(i - 1);
+            final UUID current = uuids.get(i);
+            final int compared = previous.getMostSignificantBits() != current.getMostSignificantBits()
+                    ? Long.compareUnsigned(previous.getMostSignificantBits(), current.getMostSignificantBits())
+                    : Long.compareUnsigned(previous.getLeastSignificantBits(), current.getLeastSignificantBits());
+            assertTrue(compared < 0, previous + " is not before " + current);
+        }
+    }
+
+    private static final class FixedClock extends Clock {
+        private final AtomicLong millis;
+
+        FixedClock(AtomicLong millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.wallet.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.wallet.idgen.ReferenceNumberGenerator;
+import com.wallet.idgen.UuidV7Generator;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeds users, wallets and transactions through PostgreSQL COPY. Ids are reserved from the sequences used by
+ * Hibernate, so the application keeps working on the seeded database. All seeded users have the same password.
+ * The initial wallet balances are booked in the ledger against the external account.
+ */
+@Slf4j(topic = "LoadDataSeeder")
+class LoadDataSeeder {
+
+    static final String PASSWORD = "loadtest";
+
+    private static final int CHUNK_ROWS = 50_000;
+    private static final long ROLE_USER_ID = 1;
+    private static final long TYPE_TRANSFER_ID = 1;
+    private static final String INITIAL_BALANCE = "1000000000.00";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceNumberGenerator referenceNumbers = new UuidV7Generator(Clock.systemUTC());
+
+    LoadDataSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Id ranges of the seeded rows
+     */
+    record Seed(long firstUserId, int users, long firstWalletId, int walletsPerUser, long firstTransactionId,
+                int transactions, long firstLedgerEntryId) {
+
+        int wallets() {
+            return users * walletsPerUser;
+        }
+
+        long walletId(int index) {
+            return firstWalletId + index;
+        }
+
+        long userId(int index) {
+            return firstUserId + index;
+        }
+
+        String username(int index) {
+            return "lt" + firstUserId + "_" + index;
+        }
+    }
+
+    Seed seed(int users, int walletsPerUser, int transactions) throws SQLException {
+        final long start = System.nanoTime();
+        final Seed seed = new Seed(reserve("sequence_user", users), users,
+                reserve("sequence_wallet", users * walletsPerUser), walletsPerUser,
+                reserve("sequence_transaction", transactions), transactions,
+                reserve("sequence_ledger_entry", users * walletsPerUser * 2));
+        final String password = new BCryptPasswordEncoder().encode(PASSWORD);
+
+        try (Connection connection = dataSource.getConnection()) {
+            final CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            copy(copyManager, "COPY public.\"user\" (id, first_name, last_name, username, email, password) " +
+                    "FROM STDIN WITH (FORMAT csv)", users, (i, row) -> row
+                    .append(seed.userId(i)).append(",Load,User ").append(i).append(',')
+                    .append(seed.username(i)).append(',')
+                    .append(seed.username(i)).append("@load.test,")
+                    .append(password));
+
+            copy(copyManager, "COPY public.user_role (role_id, user_id) FROM STDIN WITH (FORMAT csv)", users,
+                    (i, row) -> row.append(ROLE_USER_ID).append(',').append(seed.userId(i)));
+
+            copy(copyManager, "COPY wallet (id, iban, name, balance, user_id) FROM STDIN WITH (FORMAT csv)",
+                    seed.wallets(), (i, row) -> row
+                            .append(seed.walletId(i)).append(',')
+                            .append(iban(seed.walletId(i))).append(",Load wallet ").append(i)
+                            .append(',').append(INITIAL_BALANCE).append(',')
+                            .append(seed.userId(i / walletsPerUser)));
+
+            final LocalDateTime opened = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+            copy(copyManager, "COPY ledger_entry (id, wallet_id, transaction_id, amount, created_at) " +
+                    "FROM STDIN WITH (FORMAT csv)", seed.wallets() * 2, (i, row) -> row
+                    .append(seed.firstLedgerEntryId() + i).append(',')
+                    .append(i % 2 == 0 ? "" : String.valueOf(seed.walletId(i / 2))).append(",,")
+                    .append(i % 2 == 0 ? "-" : "").append(INITIAL_BALANCE).append(',')
+                    .append(opened));
+
+            final LocalDateTime now = LocalDateTime.ofInstant(Instant.now(), ZoneOffset.UTC);
+            copy(copyManager, "COPY transaction (id, amount, description, created_at, reference_number, status, " +
+                    "from_wallet_id, to_wallet_id, type_id) FROM STDIN WITH (FORMAT csv)", transactions, (i, row) -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                final int from = random.nextInt(seed.wallets());
+                final int to = (from + 1 + random.nextInt(seed.wallets() - 1)) % seed.wallets();
+                row.append(seed.firstTransactionId() + i).append(',')
+                        .append(random.nextInt(1, 1000)).append(".00,Load transaction,")
+                        .append(now.minusSeconds(transactions - i)).append(',')
+                        .append(referenceNumbers.next()).append(",SUCCESS,")
+                        .append(seed.walletId(from)).append(',')
+                        .append(seed.walletId(to)).append(',')
+                        .append(TYPE_TRANSFER_ID);
+            });
+        }
+        jdbcTemplate.execute("ANALYZE");
+        log.info("Seeded {} users, {} wallets and {} transactions in {} ms", users, seed.wallets(), transactions,
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return seed;
+    }
+
+    /**
+     * Deletes the seeded rows and the transactions (with their ledger entries) created on the seeded wallets
+     */
+    void delete(Seed seed) {
+        final long lastWalletId = seed.walletId(seed.wallets() - 1);
+        final long lastUserId = seed.userId(seed.users() - 1);
+        jdbcTemplate.update("DELETE FROM ledger_entry WHERE transaction_id IN (SELECT id FROM transaction " +
+                        "WHERE from_wallet_id BETWEEN ? AND ? OR to_wallet_id BETWEEN ? AND ?)",
+                seed.firstWalletId(), lastWalletId, seed.firstWalletId(), lastWalletId);
+        jdbcTemplate.update("DELETE FROM ledger_entry WHERE wallet_id BETWEEN ? AND ? OR id BETWEEN ? AND ?",
+                seed.firstWalletId(), lastWalletId, seed.firstLedgerEntryId(),
+                seed.firstLedgerEntryId() + seed.wallets() * 2L - 1);
+        jdbcTemplate.update("DELETE FROM balance_snapshot WHERE wallet_id BETWEEN ? AND ?", seed.firstWalletId(), lastWalletId);
+        jdbcTemplate.update("DELETE FROM transaction WHERE from_wallet_id BETWEEN ? AND ? OR to_wallet_id BETWEEN ? AND ?",
+                seed.firstWalletId(), lastWalletId, seed.firstWalletId(), lastWalletId);
+        jdbcTemplate.update("DELETE FROM wallet WHERE id BETWEEN ? AND ?", seed.firstWalletId(), lastWalletId);
+        jdbcTemplate.update("DELETE FROM public.user_role WHERE user_id BETWEEN ? AND ?", seed.firstUserId(), lastUserId);
+        jdbcTemplate.update("DELETE FROM public.\"user\" WHERE id BETWEEN ? AND ?", seed.firstUserId(), lastUserId);
+    }
+
+    /**
+     * Reserves a range of ids from the given sequence. The sequence is moved past the range by more than its
+     * increment, so the pooled ids Hibernate takes from the next value do not overlap with the range.
+     */
+    private long reserve(String sequence, int count) {
+        final Long first = jdbcTemplate.queryForObject("SELECT nextval(?) + 1", Long.class, sequence);
+        jdbcTemplate.queryForObject("SELECT setval(?, ?)", Long.class, sequence, first + count + 100);
+        return first;
+    }
+
+    private interface RowWriter {
+        void write(int index, StringBuilder row);
+    }
+
+    private static void copy(CopyManager copyManager, String sql, int rows, RowWriter writer) throws SQLException {
+        final StringBuilder chunk = new StringBuilder();
+        try {
+            for (int i = 0; i < rows; i++) {
+                writer.write(i, chunk);
+                chunk.append('\n');
+                if ((i + 1) % CHUNK_ROWS == 0 || i == rows - 1) {
+                    copyManager.copyIn(sql, new StringReader(chunk.toString()));
+                    chunk.setLength(0);
+                }
+            }
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Builds a valid NL IBAN (bank code LOAD) from the given number
+     */
+    static String iban(long number) {
+        final String bban = "LOAD" + String.format("%010d", number);
+        final String numeric = toDigits(bban + "NL00");
+        final int checkDigits = 98 - new BigInteger(numeric).mod(BigInteger.valueOf(97)).intValue();
+        return String.format("NL%02d%s", checkDigits, bban);
+    }
+
+    private static String toDigits(String value) {
+        final StringBuilder digits = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            digits.append(Character.isLetter(c) ? String.valueOf(c - 'A' + 10) : String.valueOf(c));
+        }
+        return digits.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package com.wallet.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Seeds the database and drives a mixed read/transfer workload against the wallet and transaction endpoints
+ * from a number of virtual users, then reports throughput and latency percentiles per endpoint. The virtual
+ * users share a target request rate; a request delayed past its turn by a slow response is recorded with the
+ * samples of the requests it held back, so a stall is not hidden by the requests that were never sent. The full
+ * HDR histograms are written to target/load-test. Excluded from the default build, run with:
+ * <pre>
+ * mvn -B -Ploadtest test -Dload.users=1000 -Dload.transactions=1000000 -Dload.virtualUsers=32
+ * </pre>
+ * The database is the configured datasource, use -Dspring.datasource.url to point it to another one.
+ */
+@Slf4j(topic = "WalletApiLoadTest")
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class WalletApiLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 100);
+    private static final int WALLETS_PER_USER = Integer.getInteger("load.walletsPerUser", 2);
+    private static final int TRANSACTIONS = Integer.getInteger("load.transactions", 100_000);
+    private static final int VIRTUAL_USERS = Integer.getInteger("load.virtualUsers", 16);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 10);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 30);
+    private static final int REQUESTS_PER_SECOND = Integer.getInteger("load.requestsPerSecond", 800);
+    private static final double TRANSFER_RATIO = Double.parseDouble(System.getProperty("load.transferRatio", "0.2"));
+    private static final boolean KEEP_DATA = Boolean.getBoolean("load.keepData");
+
+    private static final long HIGHEST_TRACKABLE_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+    // pacing of a single virtual user for the target rate of all of them
+    private static final long INTERVAL_NANOS = Math.max(1, TimeUnit.SECONDS.toNanos(VIRTUAL_USERS) / REQUESTS_PER_SECOND);
+
+    private enum Endpoint {
+        WALLET_BY_ID, TRANSACTIONS_BY_USER_ID, TRANSFER
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private LoadDataSeeder seeder;
+    private LoadDataSeeder.Seed seed;
+
+    @BeforeAll
+    void seed() throws Exception {
+        seeder = new LoadDataSeeder(dataSource);
+        seed = seeder.seed(USERS, WALLETS_PER_USER, TRANSACTIONS);
+    }
+
+    @AfterAll
+    void delete() {
+        if (seed != null && !KEEP_DATA)
+            seeder.delete(seed);
+    }
+
+    @Test
+    void mixedWorkload() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(VIRTUAL_USERS);
+        final AtomicLong errors = new AtomicLong();
+        // requests sent, the histograms also count the samples added for the requests held back
+        final Map<Endpoint, LongAdder> requests = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            requests.put(endpoint, new LongAdder());
+        }
+        final long warmupEnd = System.nanoTime() + Duration.ofSeconds(WARMUP_SECONDS).toNanos();
+        final long end = warmupEnd + Duration.ofSeconds(DURATION_SECONDS).toNanos();
+
+        final List<Future<Map<Endpoint, Histogram>>> futures = new ArrayList<>();
+        for (int i = 0; i < VIRTUAL_USERS; i++) {
+            final int userIndex = i % USERS;
+            futures.add(executor.submit(() -> run(userIndex, warmupEnd, end, requests, errors)));
+        }
+
+        final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        for (Future<Map<Endpoint, Histogram>> future : futures) {
+            future.get().forEach((endpoint, histogram) ->
+                    histograms.computeIfAbsent(endpoint, e -> newHistogram()).add(histogram));
+        }
+        executor.shutdown();
+
+        report(histograms, requests);
+        assertEquals(0, errors.get(), "requests failed");
+    }
+
+    /**
+     * Runs the workload of a single virtual user at its share of the target rate and returns its latency
+     * histograms. A user falling behind its schedule sends the next request right away.
+     */
+    private Map<Endpoint, Histogram> run(int userIndex, long warmupEnd, long end, Map<Endpoint, LongAdder> requests,
+                                         AtomicLong errors) throws Exception {
+        final Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            histograms.put(endpoint, newHistogram());
+        }
+        final String token = login(seed.username(userIndex));
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long next = System.nanoTime() + random.nextLong(INTERVAL_NANOS);
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            if (now < next) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+                now = System.nanoTime();
+            }
+            next = Math.max(next + INTERVAL_NANOS, now);
+            final Endpoint endpoint;
+            final HttpRequest request;
+            if (random.nextDouble() < TRANSFER_RATIO) {
+                endpoint = Endpoint.TRANSFER;
+                final int from = random.nextInt(seed.wallets());
+                final int to = (from + 1 + random.nextInt(seed.wallets() - 1)) % seed.wallets();
+                request = request(token, "/api/v1/wallets/transfer")
+                        .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of(
+                                "fromWalletIban", LoadDataSeeder.iban(seed.walletId(from)),
+                                "toWalletIban", LoadDataSeeder.iban(seed.walletId(to)),
+                                "amount", random.nextInt(1, 100),
+                                "description", "Load test",
+                                "typeId", 1))))
+                        .build();
+            } else if (random.nextBoolean()) {
+                endpoint = Endpoint.WALLET_BY_ID;
+                request = request(token, "/api/v1/wallets/" + seed.walletId(random.nextInt(seed.wallets()))).GET().build();
+            } else {
+                endpoint = Endpoint.TRANSACTIONS_BY_USER_ID;
+                request = request(token, "/api/v1/transactions/users/" + seed.userId(random.nextInt(USERS))).GET().build();
+            }
+
+            final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            final long latencyMicros = (System.nanoTime() - now) / 1000;
+            if (response.statusCode() >= 400)
+                errors.incrementAndGet();
+            if (now >= warmupEnd) {
+                requests.get(endpoint).increment();
+                histograms.get(endpoint).recordValueWithExpectedInterval(
+                        Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS), INTERVAL_NANOS / 1000);
+            }
+        }
+        return histograms;
+    }
+
+    private String login(String username) throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(uri("/api/v1/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(
+                        Map.of("username", username, "password", LoadDataSeeder.PASSWORD))))
+                .build();
+        final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        final JsonNode body = objectMapper.readTree(response.body());
+        return body.path("data").path("token").asText();
+    }
+
+    private HttpRequest.Builder request(String token, String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    }
+
+    private static void report(Map<Endpoint, Histogram> histograms, Map<Endpoint, LongAdder> requests)
+            throws IOException {
+        final Path directory = Files.createDirectories(Path.of("target", "load-test"));
+        log.info(String.format("%-24s %10s %10s %10s %10s %10s %10s",
+                "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<Endpoint, Histogram> entry : histograms.entrySet()) {
+            final Histogram histogram = entry.getValue();
+            log.info(String.format("%-24s %10d %10.1f %10.2f %10.2f %10.2f %10.2f",
+                    entry.getKey(),
+                    requests.get(entry.getKey()).sum(),
+                    requests.get(entry.getKey()).sum() / (double) DURATION_SECONDS,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0));
+            try (PrintStream out = new PrintStream(
+                    directory.resolve(entry.getKey().name().toLowerCase() + ".hgrm").toFile())) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+}
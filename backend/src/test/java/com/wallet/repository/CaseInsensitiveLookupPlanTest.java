@@ -0,0 +1,75 @@
+package com.wallet.repository;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.wallet.support.QueryCounter;
+
+import java.util.List;
+
+import static com.wallet.support.QueryCounter.captureStatements;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the case-insensitive existence checks are planned as index scans on the upper() expression
+ * indexes. Sequential scans are disabled while explaining, since the planner would choose them for the small
+ * tables of the test database anyway; a query no index can serve is still planned as a sequential scan.
+ */
+@Tag("database")
+@SpringBootTest(properties = QueryCounter.PROPERTY)
+class CaseInsensitiveLookupPlanTest {
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void walletChecksUseExpressionIndexes() {
+        assertIndexScan("wallet_upper_iban_idx",
+                () -> walletRepository.existsByIbanIgnoreCase("de89370400440532013000"),
+                "de89370400440532013000");
+        assertIndexScan("wallet_user_id_upper_name_idx",
+                () -> walletRepository.existsByUserIdAndNameIgnoreCase(1L, "main wallet"),
+                1L, "main wallet");
+    }
+
+    @Test
+    void userChecksUseExpressionIndexes() {
+        assertIndexScan("user_upper_username_idx",
+                () -> userRepository.existsByUsernameIgnoreCase("JOHNDOE"),
+                "JOHNDOE");
+        assertIndexScan("user_upper_email_idx",
+                () -> userRepository.existsByEmailIgnoreCase("John.Doe@Example.com"),
+                "John.Doe@Example.com");
+    }
+
+    /**
+     * Explains the single statement executed by the given check with the given parameters
+     */
+    private void assertIndexScan(String index, Runnable check, Object... parameters) {
+        final List<String> statements = captureStatements(check);
+        assertEquals(1, statements.size(), statements::toString);
+
+        final String plan = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            return String.join("\n",
+                    jdbcTemplate.queryForList("EXPLAIN " + statements.get(0), String.class, parameters));
+        });
+        assertFalse(plan.contains("Seq Scan"), plan);
+        assertTrue(plan.contains(index), plan);
+    }
+}
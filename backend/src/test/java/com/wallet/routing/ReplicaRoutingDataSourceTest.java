@@ -0,0 +1,175 @@
+package com.wallet.routing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.wallet.security.UserDetailsImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+
+    @AfterEach
+    void clear() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void routesWritesToPrimary() throws SQLException {
+        final DataSource replica = replica(0);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, replica);
+        routing.checkLag();
+
+        assertSame(primary, routing.determineTarget());
+    }
+
+    @Test
+    void routesReadsToReplicasRoundRobin() throws SQLException {
+        final DataSource first = replica(0);
+        final DataSource second = replica(0);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, first, second);
+        routing.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(first, routing.determineTarget());
+        assertSame(second, routing.determineTarget());
+        assertSame(first, routing.determineTarget());
+    }
+
+    @Test
+    void routesReadsToLeastLoadedReplica() throws SQLException {
+        final DataSource busy = replica(0);
+        final DataSource idle = replica(0);
+        final AtomicInteger busyConnections = new AtomicInteger(5);
+        final ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+                List.of(new ReplicaRoutingDataSource.Replica("busy", busy, busyConnections::get),
+                        new ReplicaRoutingDataSource.Replica("idle", idle, () -> 1)),
+                ReplicaSelection.LEAST_LOADED, 1000, Duration.ofSeconds(5), new SimpleMeterRegistry());
+        routing.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(idle, routing.determineTarget());
+        busyConnections.set(0);
+        assertSame(busy, routing.determineTarget());
+    }
+
+    @Test
+    void skipsLaggingAndUnreachableReplicas() throws SQLException {
+        final DataSource lagging = replica(5000);
+        final DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLException("Connection refused"));
+        final DataSource current = replica(10);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, lagging, unreachable, current);
+        routing.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        for (int i = 0; i < 3; i++)
+            assertSame(current, routing.determineTarget());
+    }
+
+    @Test
+    void fallsBackToPrimaryWithoutUsableReplica() throws SQLException {
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.LEAST_LOADED, replica(5000));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // replicas are not used before their lag is checked
+        assertSame(primary, routing.determineTarget());
+        routing.checkLag();
+        assertSame(primary, routing.determineTarget());
+    }
+
+    @Test
+    void pinsReadsOfUserToPrimaryAfterWrite() throws SQLException {
+        final DataSource replica = replica(0);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, replica);
+        routing.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        authenticate(1L);
+
+        assertSame(replica, routing.determineTarget());
+        routing.pin(1L);
+        assertSame(primary, routing.determineTarget());
+        authenticate(2L);
+        assertSame(replica, routing.determineTarget());
+    }
+
+    @Test
+    void pinsWritingUserBeforeCommit() throws SQLException {
+        final DataSource replica = replica(0);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, replica);
+        routing.checkLag();
+        authenticate(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertSame(primary, routing.determineTarget());
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertSame(replica, routing.determineTarget());
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+            assertSame(primary, routing.determineTarget());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void routesPrimaryReadsToPrimary() throws SQLException {
+        final DataSource replica = replica(0);
+        final ReplicaRoutingDataSource routing = routing(ReplicaSelection.ROUND_ROBIN, replica);
+        routing.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primary, ReplicaRoutingDataSource.readFromPrimary(routing::determineTarget));
+        assertSame(replica, routing.determineTarget());
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaSelection selection, DataSource... replicas) {
+        final List<ReplicaRoutingDataSource.Replica> list = new ArrayList<>();
+        for (int i = 0; i < replicas.length; i++)
+            list.add(new ReplicaRoutingDataSource.Replica("replica-" + i, replicas[i], () -> 0));
+        return new ReplicaRoutingDataSource(primary, list, selection, 1000, Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Stand-in replica reporting the given replication lag
+     */
+    private static DataSource replica(long lagMs) throws SQLException {
+        final DataSource dataSource = mock(DataSource.class);
+        final Connection connection = mock(Connection.class);
+        final Statement statement = mock(Statement.class);
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMs);
+        return dataSource;
+    }
+
+    private static void authenticate(long userId) {
+        final UserDetailsImpl user = new UserDetailsImpl(userId, "user" + userId, null, null, null, List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+}
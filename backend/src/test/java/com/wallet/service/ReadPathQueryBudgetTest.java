@@ -0,0 +1,86 @@
+package com.wallet.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import com.wallet.dto.request.TransactionRequest;
+import com.wallet.dto.response.TransactionResponse;
+import com.wallet.model.Wallet;
+import com.wallet.support.QueryCounter;
+import com.wallet.support.WalletFixture;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.wallet.support.QueryCounter.assertQueryCount;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the read paths fetch what the responses serialise with a fixed number of queries,
+ * regardless of the number of rows on the page
+ */
+@Tag("database")
+@SpringBootTest(properties = QueryCounter.PROPERTY)
+@Import(WalletFixture.class)
+class ReadPathQueryBudgetTest {
+
+    private static final int TRANSFERS = 20;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletFixture walletFixture;
+
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (long userId = 1; userId <= 2; userId++) {
+            wallets.add(walletFixture.create("BUDGET", userId, new BigDecimal("1000.00")));
+        }
+        for (int i = 0; i < TRANSFERS; i++) {
+            final TransactionRequest request = new TransactionRequest();
+            request.setFromWalletIban(wallets.get(i % 2).getIban());
+            request.setToWalletIban(wallets.get((i + 1) % 2).getIban());
+            request.setAmount(BigDecimal.ONE);
+            request.setDescription("Query budget test");
+            request.setTypeId(1L);
+            walletService.transferFunds(request);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        walletFixture.deleteAll();
+    }
+
+    @Test
+    void transactionReadsStayWithinBudget() {
+        final List<TransactionResponse> page = assertQueryCount(3,
+                () -> transactionService.findAllByUserId(2L, null, null, null, TRANSFERS).content());
+        assertEquals(TRANSFERS, page.size());
+
+        assertQueryCount(2, () -> transactionService.findById(page.get(0).getId()));
+        assertQueryCount(2, () -> transactionService.findByReferenceNumber(page.get(0).getReferenceNumber()));
+        assertQueryCount(3, () -> transactionService.findAll(PageRequest.of(0, TRANSFERS)));
+    }
+
+    @Test
+    void walletReadsStayWithinBudget() {
+        assertQueryCount(2, () -> walletService.findById(wallets.get(0).getId()));
+        assertQueryCount(2, () -> walletService.findByIban(wallets.get(0).getIban()));
+        assertQueryCount(2, () -> walletService.findByUserId(1L));
+        assertQueryCount(3, () -> walletService.findAll(PageRequest.of(0, TRANSFERS)));
+    }
+}
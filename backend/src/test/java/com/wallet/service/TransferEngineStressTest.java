@@ -0,0 +1,115 @@
+package com.wallet.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import com.wallet.dto.request.TransactionRequest;
+import com.wallet.exception.InsufficientFundsException;
+import com.wallet.model.Wallet;
+import com.wallet.repository.WalletRepository;
+import com.wallet.support.WalletFixture;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs concurrent transfers in both directions between a small set of wallets and checks that
+ * no balance update is lost and no balance goes below zero
+ */
+@Tag("database")
+@SpringBootTest
+@Import(WalletFixture.class)
+class TransferEngineStressTest {
+
+    private static final int WALLETS = 4;
+    private static final int THREADS = 16;
+    private static final int TRANSFERS_PER_THREAD = 100;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private WalletFixture walletFixture;
+
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < WALLETS; i++) {
+            wallets.add(walletFixture.create("STRESS", 1L, INITIAL_BALANCE));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        walletFixture.deleteAll();
+    }
+
+    @Test
+    void concurrentTransfersConserveBalances() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    final int from = random.nextInt(WALLETS);
+                    final int to = (from + 1 + random.nextInt(WALLETS - 1)) % WALLETS;
+                    try {
+                        walletService.transferFunds(request(wallets.get(from), wallets.get(to),
+                                BigDecimal.valueOf(random.nextInt(1, 100))));
+                    } catch (InsufficientFundsException ignored) {
+                        // expected when a wallet has been drained by the other threads
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Wallet wallet : wallets) {
+            final BigDecimal balance = walletRepository.findById(wallet.getId()).orElseThrow().getBalance();
+            assertTrue(balance.signum() >= 0, "balance of " + wallet.getIban() + " is negative");
+            total = total.add(balance);
+        }
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(WALLETS)).compareTo(total));
+    }
+
+    private static TransactionRequest request(Wallet from, Wallet to, BigDecimal amount) {
+        final TransactionRequest request = new TransactionRequest();
+        request.setFromWalletIban(from.getIban());
+        request.setToWalletIban(to.getIban());
+        request.setAmount(amount);
+        request.setDescription("Stress test");
+        request.setTypeId(1L);
+        return request;
+    }
+}
@@ -0,0 +1,55 @@
+package com.wallet.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Counts and records the SQL statements prepared by Hibernate on the current thread. Registered by class name through
+ * {@link #PROPERTY}, so tests using it run in their own application context.
+ */
+public class QueryCounter implements StatementInspector {
+
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.wallet.support.QueryCounter";
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        final List<String> statements = STATEMENTS.get();
+        if (statements != null)
+            statements.add(sql);
+        return sql;
+    }
+
+    /**
+     * Runs the given action and returns the statements it executes
+     */
+    public static List<String> captureStatements(Runnable action) {
+        final List<String> statements = new ArrayList<>();
+        STATEMENTS.set(statements);
+        try {
+            action.run();
+        } finally {
+            STATEMENTS.remove();
+        }
+        return statements;
+    }
+
+    /**
+     * Runs the given action and fails if it executes more statements than the given budget
+     */
+    public static <T> T assertQueryCount(int budget, Supplier<T> action) {
+        COUNT.get()[0] = 0;
+        final T result = action.get();
+        final int count = COUNT.get()[0];
+        if (count > budget)
+            throw new AssertionError("Expected at most " + budget + " queries but " + count + " were executed");
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package com.wallet.support;
+
+import org.springframework.boot.test.context.TestComponent;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.wallet.dto.request.WalletRequest;
+import com.wallet.model.Wallet;
+import com.wallet.repository.WalletRepository;
+import com.wallet.service.WalletService;
+import com.wallet.stats.StatsService;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Creates wallets through the wallet service for the database tests and deletes them with everything booked on
+ * them. Imported by the tests using it, which call {@link #deleteAll()} after each test.
+ */
+@TestComponent
+public class WalletFixture {
+
+    private final WalletService walletService;
+    private final WalletRepository walletRepository;
+    private final StatsService statsService;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Wallet> wallets = new ArrayList<>();
+
+    public WalletFixture(WalletService walletService, WalletRepository walletRepository, StatsService statsService,
+                         JdbcTemplate jdbcTemplate) {
+        this.walletService = walletService;
+        this.walletRepository = walletRepository;
+        this.statsService = statsService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Creates a wallet of the given user with a unique iban starting with the given prefix. Its balance is booked
+     * by the initial balance transaction, so every ledger entry of the wallet refers to the wallet or to one of
+     * its transactions.
+     */
+    public Wallet create(String prefix, long userId, BigDecimal balance) {
+        final WalletRequest request = new WalletRequest();
+        request.setIban(prefix + UUID.randomUUID().toString().replace("-", "")
+                .substring(0, 26 - prefix.length()).toUpperCase());
+        request.setName(prefix + " " + request.getIban());
+        request.setBalance(balance);
+        request.setUserId(userId);
+        final Wallet wallet = walletRepository.findById(walletService.create(request).id()).orElseThrow();
+        wallets.add(wallet);
+        return wallet;
+    }
+
+    /**
+     * Deletes the created wallets with their transactions, ledger entries and balance snapshots
+     */
+    public void deleteAll() {
+        for (Wallet wallet : wallets) {
+            // covers the entries of the external account as well, which are booked with a transaction
+            jdbcTemplate.update("DELETE FROM ledger_entry WHERE transaction_id IN (SELECT id FROM transaction " +
+                    "WHERE from_wallet_id = ? OR to_wallet_id = ?)", wallet.getId(), wallet.getId());
+            jdbcTemplate.update("DELETE FROM ledger_entry WHERE wallet_id = ?", wallet.getId());
+            jdbcTemplate.update("DELETE FROM balance_snapshot WHERE wallet_id = ?", wallet.getId());
+            jdbcTemplate.update("DELETE FROM transaction WHERE from_wallet_id = ? OR to_wallet_id = ?",
+                    wallet.getId(), wallet.getId());
+            jdbcTemplate.update("DELETE FROM wallet WHERE id = ?", wallet.getId());
+        }
+        statsService.walletsChanged(-wallets.size());
+        wallets.clear();
+    }
+}
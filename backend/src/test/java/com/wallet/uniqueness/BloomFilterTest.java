@@ -0,0 +1,53 @@
+package com.wallet.uniqueness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void containsEveryKeyPut() {
+        final BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        IntStream.range(0, KEYS).parallel().forEach(i -> filter.put(iban(i)));
+
+        for (int i = 0; i < KEYS; i++)
+            assertTrue(filter.mightContain(iban(i)), iban(i));
+    }
+
+    @Test
+    void keepsFalsePositivesNearTheTargetProbability() {
+        final BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++)
+            filter.put(iban(i));
+
+        final long falsePositives = IntStream.range(KEYS, 2 * KEYS)
+                .filter(i -> filter.mightContain(iban(i)))
+                .count();
+        assertTrue(falsePositives < KEYS * 0.015, "false positives: " + falsePositives);
+        assertTrue(Math.abs(filter.expectedFalsePositiveProbability() - 0.01) < 0.003,
+                "expected probability: " + filter.expectedFalsePositiveProbability());
+    }
+
+    @Test
+    void sizesBitArrayForTheKeys() {
+        final BloomFilter filter = new BloomFilter(KEYS, 0.01);
+
+        // about 9.6 bits and 7 hashes per key for 1%
+        assertEquals(7, filter.hashCount());
+        assertTrue(filter.bitSize() >= KEYS * 9.585 && filter.bitSize() < KEYS * 9.586 + 64);
+        assertEquals(filter.bitSize() / 8, filter.memoryBytes());
+        assertEquals(0, filter.expectedFalsePositiveProbability());
+        assertFalse(filter.mightContain(iban(0)));
+    }
+
+    private static String iban(int i) {
+        return "DE89" + String.format("%018d", i);
+    }
+}
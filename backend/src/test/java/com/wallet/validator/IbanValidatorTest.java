@@ -0,0 +1,62 @@
+package com.wallet.validator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IbanValidatorTest {
+
+    private final IbanValidator validator = new IbanValidator();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "DE89370400440532013000",
+            "GB82WEST12345698765432",
+            "NL91ABNA0417164300",
+            "FR1420041010050500013M02606",
+            "TR330006100519786457841326",
+            "BE68539007547034",
+            "CH9300762011623852957",
+            "AT611904300234573201",
+            "ES9121000418450200051332",
+            "IT60X0542811101000000123456",
+            "PL61109010140000071219812874",
+            "NO9386011117947",
+            "SE4550000000058398257466",
+            "DK5000400440116243",
+            " de89370400440532013000 "
+    })
+    void acceptsValidIbans(String iban) {
+        assertTrue(validator.isValid(iban, null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "DE88370400440532013000",
+            "DE8937040044053201300",
+            "DE893704004405320130000",
+            "XX89370400440532013000",
+            "GB82W3ST12345698765432",
+            "NL91ABNA041716430O",
+            "DE8937040044053201300$",
+            "DE",
+            ""
+    })
+    void rejectsInvalidIbans(String iban) {
+        assertFalse(validator.isValid(iban, null));
+    }
+
+    @Test
+    void returnsIndexesOfInvalidIbans() {
+        final List<String> ibans = Arrays.asList("DE89370400440532013000", "DE88370400440532013000", null,
+                "NL91ABNA0417164300");
+        assertEquals(List.of(1, 2), validator.validateAll(ibans));
+    }
+}
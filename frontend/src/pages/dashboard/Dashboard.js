@@ -1,8 +1,35 @@
 import { Container, Grid, Typography } from '@mui/material';
+import { enqueueSnackbar } from 'notistack';
+import { useEffect, useState } from 'react';
 import { Helmet } from 'react-helmet-async';
+import { useNavigate } from 'react-router-dom';
+import HttpService from '../../services/HttpService';
 import { AppWidgetSummary } from '../../sections/@dashboard/app';
 
 export default function Dashboard() {
+  const [stats, setStats] = useState({});
+  const navigate = useNavigate();
+
+  useEffect(() => {
+    fetchData();
+  }, []);
+
+  const fetchData = () => {
+    HttpService.getWithAuth('/stats')
+      .then((response) => {
+        setStats(response.data);
+      })
+      .catch((error) => {
+        if (error?.response?.status === 401) {
+          navigate('/login');
+        } else if (error.response?.data?.message) {
+          enqueueSnackbar(error.response?.data?.message, { variant: 'error' });
+        } else {
+          enqueueSnackbar(error.message, { variant: 'error' });
+        }
+      });
+  };
+
   return (
     <>
       <Helmet>
@@ -14,18 +41,15 @@ export default function Dashboard() {
         </Typography>
         <Grid container spacing={3}>
           <Grid item xs={12} sm={6} md={3}>
-            <AppWidgetSummary title="Wallets" total={714000} icon={'ant-design:wallet-outlined'} />
-            <Typography variant="body2" sx={{ my: 2 }}>
-              (*) based on mock data
-            </Typography>
+            <AppWidgetSummary title="Wallets" total={stats.wallets || 0} icon={'ant-design:wallet-outlined'} />
           </Grid>
           <Grid item xs={12} sm={6} md={3}>
-            <AppWidgetSummary title="Users" total={253000} color="warning" icon={'ant-design:user-outlined'} />
+            <AppWidgetSummary title="Users" total={stats.users || 0} color="warning" icon={'ant-design:user-outlined'} />
           </Grid>
           <Grid item xs={12} sm={6} md={3}>
             <AppWidgetSummary
               title="Transaction Amount (total)"
-              total={1352831}
+              total={Number(stats.transactionAmount || 0)}
               color="info"
               icon={'ant-design:transaction-outlined'}
             />
@@ -33,7 +57,7 @@ export default function Dashboard() {
           <Grid item xs={12} sm={6} md={3}>
             <AppWidgetSummary
               title="Transactions (monthly)"
-              total={123000}
+              total={stats.monthlyTransactions || 0}
               color="error"
               icon={'ant-design:euro-outlined'}
             />
@@ -21,6 +21,7 @@ import Label from '../../components/label';
 import Scrollbar from '../../components/scrollbar';
 import AuthService from '../../services/AuthService';
 import HttpService from '../../services/HttpService';
+import StreamService from '../../services/StreamService';
 import TransactionListHead from './TransactionListHead';
 
 const TABLE_HEAD = [
@@ -35,12 +36,18 @@ const TABLE_HEAD = [
   { id: '' },
 ];
 
+// streamed transactions carry only the iban of the wallets, not the names of their owners
+const walletOwner = (wallet) =>
+  wallet.user?.firstName ? `${wallet.user.firstName} ${wallet.user.lastName}` : wallet.iban;
+
 export default function Transaction() {
   const [open, setOpen] = useState(null);
   const [page, setPage] = useState(0);
   const [selected, setSelected] = useState([]);
   const [rowsPerPage, setRowsPerPage] = useState(5);
   const [data, setData] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loading, setLoading] = useState(false);
   const navigate = useNavigate();
 
   const handleOpenMenu = (event) => {
@@ -51,26 +58,58 @@ export default function Transaction() {
     setOpen(null);
   };
 
+  // the history is fetched page by page with the cursor of the last page, as the table reaches its end
+  const loadMore = (rows) => {
+    if (nextCursor && !loading && rows > data.length) {
+      fetchData(nextCursor);
+    }
+  };
+
   const handleChangePage = (event, newPage) => {
     setPage(newPage);
+    loadMore((newPage + 1) * rowsPerPage);
   };
 
   const handleChangeRowsPerPage = (event) => {
+    const rows = parseInt(event.target.value, 10);
     setPage(0);
-    setRowsPerPage(parseInt(event.target.value, 10));
+    setRowsPerPage(rows);
+    loadMore(rows);
   };
 
   const emptyRows = page > 0 ? Math.max(0, (1 + page) * rowsPerPage - data.length) : 0;
 
   useEffect(() => {
     fetchData();
+    // prepend the live transactions instead of refetching the history
+    return StreamService.subscribe({
+      transaction: (transaction) => {
+        setData((transactions) =>
+          transactions.some((t) => t.id === transaction.id) ? transactions : [transaction, ...transactions]
+        );
+      },
+      reconnected: () => fetchData(),
+      unauthorized: () => navigate('/login'),
+    });
   }, []);
 
-  const fetchData = () => {
+  const fetchData = (cursor) => {
     const userId = AuthService.getCurrentUser()?.id;
-    HttpService.getWithAuth(`/transactions/users/${userId}`)
+    const query = cursor ? `?cursor=${encodeURIComponent(cursor)}` : '';
+    setLoading(true);
+    HttpService.getWithAuth(`/transactions/users/${userId}${query}`)
       .then((response) => {
-        setData(response.data.content);
+        const { content, nextCursor, hasNext } = response.data;
+        // the first page replaces the history, the next ones are appended skipping the streamed transactions
+        setData((transactions) =>
+          cursor
+            ? [...transactions, ...content.filter((transaction) => !transactions.some((t) => t.id === transaction.id))]
+            : content
+        );
+        setNextCursor(hasNext ? nextCursor : null);
+        if (!cursor) {
+          setPage(0);
+        }
       })
       .catch((error) => {
         if (error?.response?.status === 401) {
@@ -82,7 +121,8 @@ export default function Transaction() {
         } else {
           enqueueSnackbar(error.message, { variant: 'error' });
         }
-      });
+      })
+      .finally(() => setLoading(false));
   };
 
   return (
@@ -111,12 +151,12 @@ export default function Transaction() {
                           <TableCell align="left" sx={{ paddingLeft: 5 }}>
                             {id}
                           </TableCell>
-                          <TableCell align="left">{`${fromWallet.user.firstName} ${fromWallet.user.lastName}`}</TableCell>
-                          <TableCell align="left">{`${toWallet.user.firstName} ${toWallet.user.lastName}`}</TableCell>
+                          <TableCell align="left">{walletOwner(fromWallet)}</TableCell>
+                          <TableCell align="left">{walletOwner(toWallet)}</TableCell>
                           <TableCell align="right">{amount}</TableCell>
                           <TableCell align="left">{description}</TableCell>
                           <TableCell align="left">{createdAt}</TableCell>
-                          <TableCell align="left">{type.name}</TableCell>
+                          <TableCell align="left">{type?.name}</TableCell>
                           <TableCell align="left">
                             <Label color={status === 'SUCCESS' ? 'success' : 'warning'}>{sentenceCase(status)}</Label>
                           </TableCell>
@@ -140,7 +180,7 @@ export default function Transaction() {
           <TablePagination
             rowsPerPageOptions={[5, 10, 25]}
             component="div"
-            count={data?.length > 0 ? data.length : 0}
+            count={nextCursor ? -1 : data.length}
             rowsPerPage={rowsPerPage}
             page={page}
             onPageChange={handleChangePage}
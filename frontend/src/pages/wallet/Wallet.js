@@ -22,6 +22,8 @@ import Iconify from '../../components/iconify';
 import Scrollbar from '../../components/scrollbar';
 import AuthService from '../../services/AuthService';
 import HttpService from '../../services/HttpService';
+import StreamService from '../../services/StreamService';
+import { fAddDecimal } from '../../utils/formatNumber';
 import WalletListHead from './WalletListHead';
 
 const TABLE_HEAD = [
@@ -61,6 +63,24 @@ export default function Wallet() {
 
   useEffect(() => {
     fetchData();
+    // apply the live balance changes instead of refetching the wallets
+    return StreamService.subscribe({
+      balance: (update) => {
+        setData((wallets) => {
+          if (!wallets.some((wallet) => wallet.id === update.walletId)) {
+            fetchData();
+            return wallets;
+          }
+          return wallets.map((wallet) =>
+            wallet.id === update.walletId
+              ? { ...wallet, balance: update.balance ?? fAddDecimal(wallet.balance, update.delta) }
+              : wallet
+          );
+        });
+      },
+      reconnected: fetchData,
+      unauthorized: () => navigate('/login'),
+    });
   }, []);
 
   const fetchData = () => {
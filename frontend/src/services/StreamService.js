@@ -0,0 +1,77 @@
+import AuthHeader from './AuthHeader';
+import axios from './axios';
+
+const RECONNECT_DELAY_MS = 3000;
+
+// dispatches the events of a server-sent event chunk, ignoring the heartbeat comments
+const dispatch = (chunk, handlers) => {
+  let name = 'message';
+  const data = [];
+  chunk.split('\n').forEach((line) => {
+    if (line.startsWith('event:')) {
+      name = line.substring(6).trim();
+    } else if (line.startsWith('data:')) {
+      data.push(line.substring(5).trim());
+    }
+  });
+  if (data.length > 0 && handlers[name]) {
+    handlers[name](JSON.parse(data.join('\n')));
+  }
+};
+
+/**
+ * Subscribes to the live wallet activity of the current user. The stream is read with fetch (rather than
+ * EventSource), so the token is sent in the Authorization header. It is reopened after it is closed, and
+ * handlers.reconnected is called then, since the events in between are lost.
+ *
+ * @returns a function closing the stream
+ */
+const subscribe = (handlers) => {
+  const controller = new AbortController();
+  const decoder = new TextDecoder();
+
+  const connect = (reconnected) => {
+    fetch(`${axios.defaults.baseURL}/stream`, {
+      headers: { ...AuthHeader(), Accept: 'text/event-stream' },
+      signal: controller.signal,
+    })
+      .then(async (response) => {
+        if (response.status === 401) {
+          handlers.unauthorized?.();
+          return;
+        }
+        if (reconnected) {
+          handlers.reconnected?.();
+        }
+        const reader = response.body.getReader();
+        let buffer = '';
+        for (;;) {
+          // eslint-disable-next-line no-await-in-loop
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+          let index = buffer.indexOf('\n\n');
+          while (index >= 0) {
+            dispatch(buffer.substring(0, index), handlers);
+            buffer = buffer.substring(index + 2);
+            index = buffer.indexOf('\n\n');
+          }
+        }
+        setTimeout(() => connect(true), RECONNECT_DELAY_MS);
+      })
+      .catch(() => {
+        if (!controller.signal.aborted) {
+          setTimeout(() => connect(true), RECONNECT_DELAY_MS);
+        }
+      });
+  };
+
+  connect(false);
+  return () => controller.abort();
+};
+
+const StreamService = {
+  subscribe,
+};
+
+export default StreamService;
@@ -35,3 +35,36 @@ function result(format, key = '.00') {
 
   return isInteger ? format.replace(key, '') : format;
 }
+
+// adds decimal amounts digit by digit, so that repeated additions do not accumulate floating point errors
+export function fAddDecimal(a, b) {
+  const x = toPlain(a);
+  const y = toPlain(b);
+  const scale = Math.max(decimals(x), decimals(y));
+  const sum = toScaled(x, scale) + toScaled(y, scale);
+  const negative = sum < BigInt(0);
+  const digits = (negative ? -sum : sum).toString().padStart(scale + 1, '0');
+  const text = scale > 0 ? `${digits.slice(0, -scale)}.${digits.slice(-scale)}` : digits;
+
+  return Number(negative ? `-${text}` : text);
+}
+
+function toPlain(number) {
+  const text = String(number ?? 0);
+
+  return /e/i.test(text) ? Number(text).toFixed(20).replace(/\.?0+$/, '') : text;
+}
+
+function decimals(text) {
+  const point = text.indexOf('.');
+
+  return point < 0 ? 0 : text.length - point - 1;
+}
+
+function toScaled(text, scale) {
+  const negative = text.startsWith('-');
+  const [integer, fraction = ''] = text.replace(/^[-+]/, '').split('.');
+  const scaled = BigInt(`${integer || '0'}${fraction.padEnd(scale, '0')}`);
+
+  return negative ? -scaled : scaled;
+}